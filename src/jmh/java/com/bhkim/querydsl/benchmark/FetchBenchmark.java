@@ -0,0 +1,65 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.repository.MemberRepository;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * 회원과 소속 팀 이름을 읽을 때 지연 로딩(N+1), fetch join, IN 2단계 조회 비교.
+ * twoPhaseInBatch 는 조건(age <= 4)으로 거른 결과라 건수가 members 에 비례한다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FetchBenchmark {
+    private static final int ROWS = 500;
+
+    @Benchmark
+    public void lazyLoading(MemberDataState state, Blackhole blackhole) {
+        JPAQueryFactory queryFactory = state.bean(JPAQueryFactory.class);
+        state.bean(TransactionTemplate.class).executeWithoutResult(status -> {
+            List<Member> members = queryFactory.selectFrom(member).limit(ROWS).fetch();
+            for (Member m : members) {
+                blackhole.consume(m.getTeam().getName());
+            }
+        });
+    }
+
+    @Benchmark
+    public void fetchJoin(MemberDataState state, Blackhole blackhole) {
+        JPAQueryFactory queryFactory = state.bean(JPAQueryFactory.class);
+        state.bean(TransactionTemplate.class).executeWithoutResult(status -> {
+            List<Member> members = queryFactory.selectFrom(member)
+                    .join(member.team, team).fetchJoin()
+                    .limit(ROWS)
+                    .fetch();
+            for (Member m : members) {
+                blackhole.consume(m.getTeam().getName());
+            }
+        });
+    }
+
+    @Benchmark
+    public void twoPhaseInBatch(MemberDataState state, Blackhole blackhole) {
+        MemberRepository repository = state.bean(MemberRepository.class);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(4);
+        state.bean(TransactionTemplate.class).executeWithoutResult(status -> {
+            for (Member m : repository.findAllWithTeamInBatch(condition)) {
+                blackhole.consume(m.getTeam().getName());
+            }
+        });
+    }
+}
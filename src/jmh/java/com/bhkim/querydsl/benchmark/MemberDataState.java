@@ -0,0 +1,77 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.QueryDslApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 임베디드 H2 위에 애플리케이션 컨텍스트를 띄우고 members 건수만큼 데이터를 채운다.
+ * 건수는 -Pjmh.members=10000,1000000,10000000 으로 바꿀 수 있다.
+ */
+@State(Scope.Benchmark)
+public class MemberDataState {
+    public static final int TEAM_COUNT = 100;
+
+    @Param({"10000"})
+    public int members;
+
+    public ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = start(extraProperties());
+        seed(context.getBean(JdbcTemplate.class), members);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * 벤치마크별로 애플리케이션 설정을 바꿀 때 오버라이드한다.
+     */
+    protected List<String> extraProperties() {
+        return List.of();
+    }
+
+    static ConfigurableApplicationContext start(List<String> extraProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1",
+                "spring.jpa.hibernate.ddl-auto=create",
+                "spring.jpa.properties.hibernate.show_sql=false",
+                "decorator.datasource.p6spy.enable-logging=false",
+                "logging.level.root=warn"));
+        properties.addAll(extraProperties);
+        return new SpringApplicationBuilder(QueryDslApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    static void seed(JdbcTemplate jdbcTemplate, int members) {
+        jdbcTemplate.update("insert into team (team_id, name) select x, 'team' || x from system_range(1, ?)", TEAM_COUNT);
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) "
+                + "select x, 'member' || x, mod(x, 100), mod(x, ?) + 1 from system_range(1, ?)", TEAM_COUNT, members);
+        // 벤치마크 중 persist 하는 id 가 직접 넣은 id 와 겹치지 않도록 시퀀스를 옮긴다
+        // (pooled optimizer 는 시퀀스 값 - allocationSize 부터 쓰므로 allocationSize(100) 만큼 더 띄운다)
+        jdbcTemplate.execute("alter sequence team_seq restart with " + (TEAM_COUNT + 101));
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (members + 101));
+        jdbcTemplate.execute("analyze");
+    }
+}
@@ -0,0 +1,59 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.service.MemberPageService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 16 개 스레드가 동시에 페이지 조회를 할 때 순차(content -> count) 와 병렬 실행의 지연 분포 비교.
+ * SampleTime 모드라 결과 JSON 에 p50/p99 등 백분위와 처리량이 같이 나온다.
+ * count 캐시는 꺼서 매 요청이 count 를 실제로 실행하게 한다.
+ */
+@BenchmarkMode({Mode.SampleTime, Mode.Throughput})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class PageLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PageState extends MemberDataState {
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        MemberPageService pageService;
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(10, 20);
+
+        @Override
+        protected List<String> extraProperties() {
+            return List.of(
+                    "app.parallel-page.enabled=" + parallel,
+                    "app.count-cache.enabled=false",
+                    "spring.datasource.hikari.maximum-pool-size=32");
+        }
+
+        @Setup
+        public void conditions() {
+            pageService = bean(MemberPageService.class);
+            condition.setAgeGoe(10);
+        }
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPage(PageState state) {
+        return state.pageService.searchPage(state.condition, state.pageRequest);
+    }
+}
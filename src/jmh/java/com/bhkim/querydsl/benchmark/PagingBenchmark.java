@@ -0,0 +1,56 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.MemberCursor;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.repository.MemberRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 전체의 90% 지점 페이지를 offset 과 keyset 으로 읽는 비용 비교. 두 경로 모두 count 는 하지 않는다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PagingBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @State(Scope.Benchmark)
+    public static class PagingState {
+        MemberRepository repository;
+        MemberSearchCondition condition = new MemberSearchCondition();
+        PageRequest deepPage;
+        MemberCursor deepCursor;
+
+        @Setup
+        public void setUp(MemberDataState data) {
+            repository = data.bean(MemberRepository.class);
+            int page = (int) (data.members * 0.9) / PAGE_SIZE;
+            deepPage = PageRequest.of(page, PAGE_SIZE);
+            // 시드 데이터의 id 는 1 부터 연속이므로 offset 위치의 id 를 바로 계산할 수 있다
+            long lastIdBeforePage = (long) page * PAGE_SIZE;
+            deepCursor = MemberCursor.next(MemberCursor.Order.ID,
+                    new MemberTeamDto(lastIdBeforePage, null, 0, null, null));
+        }
+    }
+
+    @Benchmark
+    public Slice<MemberTeamDto> offset(PagingState state) {
+        return state.repository.searchSliceNoCount(state.condition, state.deepPage);
+    }
+
+    @Benchmark
+    public CursorSlice<MemberTeamDto> keyset(PagingState state) {
+        return state.repository.searchSlice(state.condition, state.deepCursor, PAGE_SIZE);
+    }
+}
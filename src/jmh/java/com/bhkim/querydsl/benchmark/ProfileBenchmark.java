@@ -0,0 +1,150 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.repository.MemberRepository;
+import com.bhkim.querydsl.service.MemberPageService;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * perf 프로필의 설정을 하나씩 켜서 같은 부하로 처리량을 비교한다. 모든 변형은 같은 로깅 기준선(SQL / p6spy 로그 off) 위에서 돈다.
+ * <ul>
+ *     <li>baseline: 기본 설정 + 조용한 로깅. 다른 변형은 여기에 설정 한 묶음만 더한다</li>
+ *     <li>devLogging: 개발 설정의 SQL 로그(format_sql)와 p6spy 로그. 로깅 비용만 따로 본다 (build/jmh 아래 파일로 쓴다)</li>
+ *     <li>pool / statementCache / batching / inPadding / planCache / noP6spy: perf 프로필의 각 묶음</li>
+ *     <li>perf: perf 프로필 전체</li>
+ * </ul>
+ * noP6spy(decorator.datasource.enabled=false)는 p6spy 를 빼므로 그 변형과 perf 프로필에서는
+ * querydsl.repository.statements 가 0 으로 집계된다.
+ * <ul>
+ *     <li>searchTeamsIn: 1~20 개 팀 IN 조건. IN 목록 길이가 매번 달라 padding / 문장 캐시 효과가 드러난다</li>
+ *     <li>searchPage: content + count 페이지 조회 (커넥션 풀, 로깅 비용)</li>
+ *     <li>insertBatch: 회원 50 건 저장 후 삭제 (JDBC batch)</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class ProfileBenchmark {
+    private static final int BATCH = 50;
+
+    private static final List<String> QUIET_LOGGING = List.of(
+            "spring.jpa.properties.hibernate.format_sql=false",
+            "logging.level.org.hibernate.SQL=warn",
+            "logging.level.p6spy=warn",
+            "decorator.datasource.p6spy.enable-logging=false");
+
+    // application.yml 의 perf 프로필을 묶음별로 나눈 것
+    private static final Map<String, List<String>> SETTINGS = Map.of(
+            "baseline", List.of(),
+            "devLogging", List.of(
+                    "spring.jpa.properties.hibernate.format_sql=true",
+                    "logging.level.org.hibernate.SQL=debug",
+                    "decorator.datasource.p6spy.enable-logging=true",
+                    "logging.file.name=build/jmh/dev-logging.log",
+                    "logging.pattern.console="),
+            "pool", List.of(
+                    "spring.datasource.hikari.maximum-pool-size=20",
+                    "spring.datasource.hikari.minimum-idle=20",
+                    "spring.datasource.hikari.connection-timeout=2000"),
+            "statementCache", List.of(
+                    "spring.datasource.hikari.data-source-properties.QUERY_CACHE_SIZE=256"),
+            "batching", List.of(
+                    "spring.jpa.properties.hibernate.jdbc.batch_size=100",
+                    "spring.jpa.properties.hibernate.jdbc.batch_versioned_data=true",
+                    "spring.jpa.properties.hibernate.order_inserts=true",
+                    "spring.jpa.properties.hibernate.order_updates=true"),
+            "inPadding", List.of(
+                    "spring.jpa.properties.hibernate.query.in_clause_parameter_padding=true"),
+            "planCache", List.of(
+                    "spring.jpa.properties.hibernate.query.plan_cache_max_size=4096",
+                    "spring.jpa.properties.hibernate.query.plan_parameter_metadata_max_size=256"),
+            "noP6spy", List.of(
+                    "decorator.datasource.enabled=false"),
+            "perf", List.of(
+                    "spring.profiles.active=perf"));
+
+    @State(Scope.Benchmark)
+    public static class ProfileState extends MemberDataState {
+        @Param({"baseline", "devLogging", "pool", "statementCache", "batching", "inPadding", "planCache", "noP6spy", "perf"})
+        public String setting;
+
+        MemberRepository repository;
+        MemberPageService pageService;
+        EntityManager em;
+        TransactionTemplate transactionTemplate;
+        MemberSearchCondition pageCondition = new MemberSearchCondition();
+        PageRequest pageRequest = PageRequest.of(10, 20);
+
+        @Override
+        protected List<String> extraProperties() {
+            List<String> properties = new ArrayList<>(QUIET_LOGGING);
+            properties.addAll(SETTINGS.get(setting));
+            return properties;
+        }
+
+        @Setup
+        public void beans() {
+            repository = bean(MemberRepository.class);
+            pageService = bean(MemberPageService.class);
+            em = bean(EntityManager.class);
+            transactionTemplate = new TransactionTemplate(bean(PlatformTransactionManager.class));
+            pageCondition.setAgeGoe(10);
+        }
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchTeamsIn(ProfileState state) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int size = random.nextInt(1, 21);
+        List<String> teamNames = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            teamNames.add("team" + random.nextInt(1, MemberDataState.TEAM_COUNT + 1));
+        }
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamNames(teamNames);
+        condition.setAgeLoe(random.nextInt(100));
+        return state.repository.search(condition);
+    }
+
+    @Benchmark
+    public Page<MemberTeamDto> searchPage(ProfileState state) {
+        return state.pageService.searchPage(state.pageCondition, state.pageRequest);
+    }
+
+    @Benchmark
+    public int insertBatch(ProfileState state) {
+        return state.transactionTemplate.execute(status -> {
+            List<Long> ids = new ArrayList<>(BATCH);
+            for (int i = 0; i < BATCH; i++) {
+                Member member = new Member("batch" + i, i);
+                state.em.persist(member);
+                ids.add(member.getId());
+            }
+            state.em.flush();
+            return state.em.createQuery("delete from Member m where m.id in :ids")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        });
+    }
+}
@@ -0,0 +1,91 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.dto.QMemberTeamDto;
+import com.bhkim.querydsl.repository.MemberSearchKey;
+import com.bhkim.querydsl.repository.MemberSearchQueryCache;
+import com.bhkim.querydsl.repository.MemberTeamProjection;
+import com.querydsl.core.types.Projections;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * 같은 1000 건을 생성자 / 필드 / setter / @QueryProjection / 미리 만든 FactoryExpression 프로젝션으로 읽는 비용 비교.
+ * 행당 할당량은 -Pjmh.profilers=gc 의 gc.alloc.rate.norm 을 ROWS 로 나눠 본다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark {
+    private static final int ROWS = 1000;
+
+    @Benchmark
+    public List<MemberTeamDto> constructor(MemberDataState state) {
+        return state.bean(JPAQueryFactory.class)
+                .select(Projections.constructor(MemberTeamDto.class,
+                        member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> queryProjection(MemberDataState state) {
+        return state.bean(JPAQueryFactory.class)
+                .select(new QMemberTeamDto(member.id, member.username, member.age, team.id, team.name))
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> precomputed(MemberDataState state) {
+        return state.bean(JPAQueryFactory.class)
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> compiledTupleTransformer(MemberDataState state) {
+        return state.bean(MemberSearchQueryCache.class)
+                .fetch(MemberSearchKey.of(new MemberSearchCondition()), 0, ROWS);
+    }
+
+    @Benchmark
+    public List<MemberTeamRow> fields(MemberDataState state) {
+        return state.bean(JPAQueryFactory.class)
+                .select(Projections.fields(MemberTeamRow.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+
+    @Benchmark
+    public List<MemberTeamRow> bean(MemberDataState state) {
+        return state.bean(JPAQueryFactory.class)
+                .select(Projections.bean(MemberTeamRow.class,
+                        member.id.as("memberId"), member.username, member.age,
+                        team.id.as("teamId"), team.name.as("teamName")))
+                .from(member)
+                .leftJoin(member.team, team)
+                .limit(ROWS)
+                .fetch();
+    }
+}
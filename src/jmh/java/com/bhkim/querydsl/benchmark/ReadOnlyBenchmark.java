@@ -0,0 +1,66 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.repository.MemberRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 같은 엔티티 조회(회원 1000 건 + 팀 fetch join)를 읽기-쓰기 / 읽기 전용 트랜잭션에서 실행하는 비용 비교.
+ * 읽기 전용이면 Hibernate 가 로딩 스냅샷을 만들지 않고 커밋 시 dirty checking / flush 도 하지 않는다.
+ * 요청당 할당량은 -Pjmh.profilers=gc 의 gc.alloc.rate.norm 으로 본다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReadOnlyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class TxState {
+        TransactionTemplate readWrite;
+        TransactionTemplate readOnly;
+        MemberSearchCondition condition;
+
+        @Setup
+        public void setUp(MemberDataState data) {
+            PlatformTransactionManager transactionManager = data.bean(PlatformTransactionManager.class);
+            readWrite = new TransactionTemplate(transactionManager);
+            readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            // age 는 0~99 가 고르게 들어 있으므로 10% (members=10000 이면 1000 건)
+            condition = new MemberSearchCondition();
+            condition.setAgeLoe(9);
+        }
+    }
+
+    @Benchmark
+    public void readWrite(MemberDataState data, TxState tx, Blackhole blackhole) {
+        load(data, tx.readWrite, tx.condition, blackhole);
+    }
+
+    @Benchmark
+    public void readOnly(MemberDataState data, TxState tx, Blackhole blackhole) {
+        load(data, tx.readOnly, tx.condition, blackhole);
+    }
+
+    private void load(MemberDataState data, TransactionTemplate template, MemberSearchCondition condition, Blackhole blackhole) {
+        MemberRepository repository = data.bean(MemberRepository.class);
+        template.executeWithoutResult(status -> {
+            List<Member> members = repository.findAllWithTeam(condition);
+            for (Member m : members) {
+                blackhole.consume(m.getTeam().getName());
+            }
+        });
+    }
+}
@@ -0,0 +1,73 @@
+package com.bhkim.querydsl.benchmark;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.repository.MemberRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * where 파라미터 방식(search) 과 BooleanBuilder 방식(searchByBuilder) 비교.
+ * queryCache=true 이면 search 는 조건 조합별로 미리 렌더링한 JPQL 을 쓴다.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SearchBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SearchState extends MemberDataState {
+        @Param({"true", "false"})
+        public boolean queryCache;
+
+        MemberRepository repository;
+        MemberSearchCondition byUsername;
+        MemberSearchCondition byTeamAndAge;
+
+        @Override
+        protected List<String> extraProperties() {
+            return List.of("app.query-cache.enabled=" + queryCache);
+        }
+
+        @Setup
+        public void conditions() {
+            repository = bean(MemberRepository.class);
+
+            byUsername = new MemberSearchCondition();
+            byUsername.setUsername("member42");
+
+            byTeamAndAge = new MemberSearchCondition();
+            byTeamAndAge.setTeamName("team7");
+            byTeamAndAge.setAgeGoe(20);
+            byTeamAndAge.setAgeLoe(29);
+        }
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByUsername(SearchState state) {
+        return state.repository.search(state.byUsername);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilderByUsername(SearchState state) {
+        return state.repository.searchByBuilder(state.byUsername);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByTeamAndAge(SearchState state) {
+        return state.repository.search(state.byTeamAndAge);
+    }
+
+    @Benchmark
+    public List<MemberTeamDto> searchByBuilderByTeamAndAge(SearchState state) {
+        return state.repository.searchByBuilder(state.byTeamAndAge);
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication(scanBasePackageClasses = {BasePackage.class})
+@ConfigurationPropertiesScan(basePackageClasses = {BasePackage.class})
 public class QueryDslApplication {
 
 	public static void main(String[] args) {
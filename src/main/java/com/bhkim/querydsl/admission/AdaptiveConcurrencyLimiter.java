@@ -0,0 +1,161 @@
+package com.bhkim.querydsl.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 관측한 지연으로 동시 실행 한도를 조절하는 limiter (gradient 방식).
+ * 지연이 최소 지연의 TOLERANCE 배 안이면 한도를 sqrt(limit) 씩 늘리고, 넘으면 그 비율만큼 줄인다.
+ * 타임아웃으로 끝난 요청은 한도를 곱셈으로 줄인다.
+ * <p>
+ * 레인: SCAN 은 한도의 scanShare 까지만 쓰고 INDEXED 가 기다리는 동안에는 새로 들어가지 못한다.
+ * 한도가 차면 레인별 대기열(maxQueue)에서 최대 maxWait 기다리고, 대기열이 차 있으면 바로 거절한다.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final double DROP_DECREASE = 0.9;
+    // 최소 지연을 이만큼의 표본마다 다시 잰다 (데이터가 늘어 정상 지연이 바뀌는 경우)
+    private static final int MIN_RTT_WINDOW = 500;
+
+    public enum Lane { INDEXED, SCAN }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double scanShare;
+    private final int maxQueue;
+
+    private double limit;
+    private int inflight;
+    private final int[] laneInflight = new int[Lane.values().length];
+    private final int[] waiting = new int[Lane.values().length];
+    private long minRttNanos = Long.MAX_VALUE;
+    private int samples;
+
+    private final LongAdder[] admitted = {new LongAdder(), new LongAdder()};
+    private final LongAdder[] rejected = {new LongAdder(), new LongAdder()};
+    private final LongAdder[] dropped = {new LongAdder(), new LongAdder()};
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double scanShare, int maxQueue) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.scanShare = scanShare;
+        this.maxQueue = maxQueue;
+    }
+
+    /**
+     * 자리가 나면 Permit, maxWaitNanos 안에 나지 않거나 대기열이 차 있으면 null.
+     */
+    public synchronized Permit tryAcquire(Lane lane, long maxWaitNanos) throws InterruptedException {
+        int i = lane.ordinal();
+        if (!canAdmit(lane)) {
+            if (maxWaitNanos <= 0 || waiting[i] >= maxQueue) {
+                rejected[i].increment();
+                return null;
+            }
+            waiting[i]++;
+            try {
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (!canAdmit(lane)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        rejected[i].increment();
+                        return null;
+                    }
+                    TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                }
+            } finally {
+                waiting[i]--;
+            }
+        }
+        inflight++;
+        laneInflight[i]++;
+        admitted[i].increment();
+        return new Permit(lane, System.nanoTime(), inflight);
+    }
+
+    private boolean canAdmit(Lane lane) {
+        int current = (int) limit;
+        if (inflight >= current) {
+            return false;
+        }
+        if (lane == Lane.SCAN) {
+            return waiting[Lane.INDEXED.ordinal()] == 0
+                    && laneInflight[Lane.SCAN.ordinal()] < Math.max(1, (int) (current * scanShare));
+        }
+        return true;
+    }
+
+    private synchronized void release(Permit permit, boolean dropped, boolean measured) {
+        inflight--;
+        laneInflight[permit.lane.ordinal()]--;
+        if (dropped) {
+            this.dropped[permit.lane.ordinal()].increment();
+            limit = Math.max(minLimit, limit * DROP_DECREASE);
+        } else if (measured) {
+            update(System.nanoTime() - permit.startNanos, permit.inflightAtStart);
+        }
+        notifyAll();
+    }
+
+    private void update(long rttNanos, int inflightAtStart) {
+        if (++samples % MIN_RTT_WINDOW == 0) {
+            minRttNanos = rttNanos;
+        } else {
+            minRttNanos = Math.min(minRttNanos, rttNanos);
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * minRttNanos / Math.max(1, rttNanos)));
+        // 한도의 절반도 안 쓰고 있었다면 늘릴 근거가 없다
+        double headroom = inflightAtStart * 2 >= limit ? Math.sqrt(limit) : 0;
+        double next = limit * gradient + headroom;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + next * SMOOTHING));
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inflight() {
+        return inflight;
+    }
+
+    public long admitted(Lane lane) {
+        return admitted[lane.ordinal()].sum();
+    }
+
+    public long rejected(Lane lane) {
+        return rejected[lane.ordinal()].sum();
+    }
+
+    public long dropped(Lane lane) {
+        return dropped[lane.ordinal()].sum();
+    }
+
+    public final class Permit {
+        private final Lane lane;
+        private final long startNanos;
+        private final int inflightAtStart;
+
+        private Permit(Lane lane, long startNanos, int inflightAtStart) {
+            this.lane = lane;
+            this.startNanos = startNanos;
+            this.inflightAtStart = inflightAtStart;
+        }
+
+        // 정상 완료 (지연을 한도 계산에 반영)
+        public void release() {
+            AdaptiveConcurrencyLimiter.this.release(this, false, true);
+        }
+
+        // 정상 완료지만 걸린 시간이 부하가 아니라 결과 크기에 달린 작업 (내보내기 등). 지연을 반영하지 않는다
+        public void releaseUnmeasured() {
+            AdaptiveConcurrencyLimiter.this.release(this, false, false);
+        }
+
+        // 타임아웃 등 과부하 신호로 끝남
+        public void dropped() {
+            AdaptiveConcurrencyLimiter.this.release(this, true, true);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.bhkim.querydsl.admission;
+
+/**
+ * 동시 실행 한도와 대기열이 차 있거나 마감까지 남은 시간이 없어 요청을 받지 않았다 (429).
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    public AdmissionRejectedException(String message) {
+        super(message);
+    }
+}
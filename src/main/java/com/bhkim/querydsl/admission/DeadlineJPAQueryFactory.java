@@ -0,0 +1,59 @@
+package com.bhkim.querydsl.admission;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.QueryModifiers;
+import com.querydsl.jpa.JPQLTemplates;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+
+import java.util.function.Supplier;
+
+/**
+ * 만드는 JPAQuery 가 실행 직전(jakarta.persistence.Query 를 만들 때) {@link QueryDeadline} 의 남은 시간을 타임아웃으로 건다.
+ * 마감이 걸려 있지 않으면 JPAQueryFactory 와 같다. update / delete 절은 검색 경로가 아니므로 건드리지 않는다.
+ */
+public class DeadlineJPAQueryFactory extends JPAQueryFactory {
+    private final Supplier<EntityManager> entityManager;
+
+    public DeadlineJPAQueryFactory(EntityManager entityManager) {
+        super(entityManager);
+        this.entityManager = () -> entityManager;
+    }
+
+    @Override
+    public JPAQuery<?> query() {
+        return new DeadlineJPAQuery<Void>(entityManager.get());
+    }
+
+    private static final class DeadlineJPAQuery<T> extends JPAQuery<T> {
+
+        DeadlineJPAQuery(EntityManager em) {
+            super(em);
+        }
+
+        DeadlineJPAQuery(EntityManager em, JPQLTemplates templates, QueryMetadata metadata) {
+            super(em, templates, metadata);
+        }
+
+        @Override
+        protected Query createQuery(QueryModifiers modifiers, boolean forCount) {
+            Query query = super.createQuery(modifiers, forCount);
+            QueryDeadline.applyTo(query);
+            return query;
+        }
+
+        @Override
+        public DeadlineJPAQuery<T> clone(EntityManager entityManager, JPQLTemplates templates) {
+            DeadlineJPAQuery<T> q = new DeadlineJPAQuery<>(entityManager, templates, getMetadata().clone());
+            q.clone(this);
+            return q;
+        }
+
+        @Override
+        public DeadlineJPAQuery<T> clone(EntityManager entityManager) {
+            return clone(entityManager, getTemplates());
+        }
+    }
+}
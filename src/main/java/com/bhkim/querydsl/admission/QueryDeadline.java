@@ -0,0 +1,68 @@
+package com.bhkim.querydsl.admission;
+
+import com.bhkim.querydsl.config.ContextPropagatingExecutor;
+import jakarta.persistence.Query;
+import org.hibernate.jpa.SpecHints;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 요청의 마감 시각(System.nanoTime 기준). SearchAdmission 이 현재 스레드에 걸고, 그 동안 만드는 쿼리마다
+ * 남은 시간을 jakarta.persistence.query.timeout 힌트로 건다 ({@link #applyTo(Query)}).
+ * {@link #propagating(ExecutorService)} 로 감싼 실행기에 넘긴 작업(병렬 페이지, id 청크, 샤드)에도 이어진다.
+ * <p>
+ * JDBC 의 문장 타임아웃은 초 단위이고 Hibernate 는 밀리초 힌트를 초로 반올림하므로, 1 초 미만이 0(무제한)이 되지 않도록
+ * 초 단위로 올려서 건다. 대신 쿼리를 만들 때 이미 마감이 지났으면 DB 로 보내지 않고 바로 QueryTimeoutException 을 던진다.
+ */
+public final class QueryDeadline {
+    private static final ThreadLocal<Long> DEADLINE_NANOS = new ThreadLocal<>();
+    private static final long MILLIS_PER_SECOND = 1000;
+
+    private QueryDeadline() {
+    }
+
+    /**
+     * deadlineNanos 를 현재 스레드의 마감으로 걸고 work 를 실행한다. 이미 걸린 마감이 더 이르면 그대로 둔다.
+     */
+    public static <T> T within(long deadlineNanos, Supplier<T> work) {
+        Long previous = DEADLINE_NANOS.get();
+        DEADLINE_NANOS.set(previous == null || deadlineNanos - previous < 0 ? deadlineNanos : previous);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                DEADLINE_NANOS.remove();
+            } else {
+                DEADLINE_NANOS.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 현재 스레드에 마감이 걸려 있으면 남은 시간을 쿼리 타임아웃으로 건다.
+     * 쿼리에 이미 더 짧은 타임아웃(트랜잭션 타임아웃 등)이 걸려 있으면 그대로 둔다.
+     */
+    public static void applyTo(Query query) {
+        Long deadline = DEADLINE_NANOS.get();
+        if (deadline == null) {
+            return;
+        }
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis <= 0) {
+            throw new QueryTimeoutException("request deadline passed before the query was sent");
+        }
+        long roundedUp = (remainingMillis + MILLIS_PER_SECOND - 1) / MILLIS_PER_SECOND * MILLIS_PER_SECOND;
+        if (query.getHints().get(SpecHints.HINT_SPEC_QUERY_TIMEOUT) instanceof Number current
+                && current.longValue() > 0 && current.longValue() <= roundedUp) {
+            return;
+        }
+        query.setHint(SpecHints.HINT_SPEC_QUERY_TIMEOUT, (int) Math.min(roundedUp, Integer.MAX_VALUE));
+    }
+
+    public static ExecutorService propagating(ExecutorService delegate) {
+        return new ContextPropagatingExecutor<>(delegate, DEADLINE_NANOS);
+    }
+}
@@ -0,0 +1,182 @@
+package com.bhkim.querydsl.admission;
+
+import com.bhkim.querydsl.admission.AdaptiveConcurrencyLimiter.Lane;
+import com.bhkim.querydsl.admission.AdaptiveConcurrencyLimiter.Permit;
+import com.bhkim.querydsl.config.AdmissionProperties;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.repository.MemberSearchKey;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 검색 엔드포인트 앞단의 수용 제어.
+ * 요청을 레인으로 나눠 AdaptiveConcurrencyLimiter 의 자리를 얻은 뒤, 마감을 QueryDeadline 으로 걸고 실행한다.
+ * 트랜잭션은 열지 않는다 (대기 중이나 실행 중에 커넥션을 붙잡지 않도록). 마감은 그 요청이 만드는 쿼리마다,
+ * 실행기 스레드에서 도는 쿼리까지 남은 시간만큼의 쿼리 타임아웃이 된다.
+ * <p>
+ * 쿼리 / 트랜잭션 타임아웃으로 끝난 요청(컨트롤러가 503 으로 답하는 것)은 과부하 신호로 한도를 줄인다.
+ * 동시 실행 한도는 커넥션 풀 크기를 넘지 않는다. 자리를 얻은 요청이 커넥션을 기다리며 마감을 다 쓰지 않도록.
+ * <p>
+ * 마감은 X-Request-Deadline-Ms 헤더(남은 밀리초, 클라이언트와 시계를 공유하지 않도록 상대값)로 받고 없으면 defaultTimeout.
+ */
+@Component
+public class SearchAdmission implements MeterBinder {
+    public static final String DEADLINE_HEADER = "X-Request-Deadline-Ms";
+
+    private final AdmissionProperties properties;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public SearchAdmission(AdmissionProperties properties,
+                           @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        this.properties = properties;
+        int maxLimit = Math.min(properties.maxLimit(), poolSize);
+        this.limiter = new AdaptiveConcurrencyLimiter(Math.min(properties.initialLimit(), maxLimit),
+                Math.min(properties.minLimit(), maxLimit), maxLimit, properties.scanShare(), properties.maxQueue());
+    }
+
+    public <T> T call(MemberSearchCondition condition, String deadlineHeader, Supplier<T> search) {
+        return call(laneOf(condition), deadlineHeader, search);
+    }
+
+    public <T> T call(Lane lane, String deadlineHeader, Supplier<T> search) {
+        if (!properties.enabled()) {
+            return search.get();
+        }
+        return admit(lane, budgetNanos(deadlineHeader, properties.defaultTimeout()), true, search::get);
+    }
+
+    /**
+     * 내보내기. 조건과 무관하게 결과 전체를 읽으므로 SCAN 레인이고, 걸린 시간은 결과 크기에 달려 있어 지연 표본으로 쓰지 않는다.
+     * 마감 헤더가 없으면 exportTimeout.
+     */
+    public void export(String deadlineHeader, Export export) throws IOException {
+        if (!properties.enabled()) {
+            export.write();
+            return;
+        }
+        admit(Lane.SCAN, budgetNanos(deadlineHeader, properties.exportTimeout()), false, () -> {
+            export.write();
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    public interface Export {
+        void write() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Work<T, E extends Exception> {
+        T get() throws E;
+    }
+
+    private <T, E extends Exception> T admit(Lane lane, long budgetNanos, boolean measured, Work<T, E> work) throws E {
+        long deadline = System.nanoTime() + budgetNanos;
+
+        Permit permit = acquire(lane, Math.min(budgetNanos, properties.maxWait().toNanos()));
+        boolean dropped = false;
+        try {
+            if (deadline - System.nanoTime() <= 0) {
+                throw new AdmissionRejectedException("deadline exceeded while queued");
+            }
+            return QueryDeadline.within(deadline, () -> {
+                try {
+                    return work.get();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CheckedFailure(e);
+                }
+            });
+        } catch (QueryTimeoutException | jakarta.persistence.QueryTimeoutException | TransactionTimedOutException e) {
+            dropped = true;
+            throw e;
+        } catch (CheckedFailure e) {
+            @SuppressWarnings("unchecked")
+            E cause = (E) e.getCause();
+            throw cause;
+        } finally {
+            if (dropped) {
+                permit.dropped();
+            } else if (measured) {
+                permit.release();
+            } else {
+                permit.releaseUnmeasured();
+            }
+        }
+    }
+
+    // Supplier 를 넘어 checked 예외를 그대로 다시 던지기 위한 포장
+    private static final class CheckedFailure extends RuntimeException {
+        CheckedFailure(Exception cause) {
+            super(cause);
+        }
+    }
+
+    /**
+     * username / teamName / teamNames / usernamePrefix 가 있으면 인덱스로 좁혀지는 INDEXED, 아니면 SCAN.
+     */
+    public static Lane laneOf(MemberSearchCondition condition) {
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        boolean selective = key.username() != null || key.teamName() != null
+                || key.teamNames() != null || key.usernamePrefix() != null;
+        return selective ? Lane.INDEXED : Lane.SCAN;
+    }
+
+    private Permit acquire(Lane lane, long maxWaitNanos) {
+        try {
+            Permit permit = limiter.tryAcquire(lane, maxWaitNanos);
+            if (permit == null) {
+                throw new AdmissionRejectedException("too many concurrent " + lane + " searches");
+            }
+            return permit;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AdmissionRejectedException("interrupted while queued");
+        }
+    }
+
+    private long budgetNanos(String deadlineHeader, Duration defaultBudget) {
+        if (hasText(deadlineHeader)) {
+            try {
+                return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(deadlineHeader.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(DEADLINE_HEADER + " must be milliseconds: " + deadlineHeader);
+            }
+        }
+        return defaultBudget.toNanos();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (Lane lane : Lane.values()) {
+            String tag = lane.name().toLowerCase();
+            FunctionCounter.builder("member.search.admission", limiter, l -> l.admitted(lane))
+                    .tags("lane", tag, "result", "admitted")
+                    .register(registry);
+            FunctionCounter.builder("member.search.admission", limiter, l -> l.rejected(lane))
+                    .tags("lane", tag, "result", "rejected")
+                    .register(registry);
+            FunctionCounter.builder("member.search.admission", limiter, l -> l.dropped(lane))
+                    .tags("lane", tag, "result", "dropped")
+                    .register(registry);
+        }
+        Gauge.builder("member.search.admission.limit", limiter, AdaptiveConcurrencyLimiter::limit)
+                .register(registry);
+        Gauge.builder("member.search.admission.inflight", limiter, AdaptiveConcurrencyLimiter::inflight)
+                .register(registry);
+    }
+}
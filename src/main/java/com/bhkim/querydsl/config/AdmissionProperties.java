@@ -0,0 +1,25 @@
+package com.bhkim.querydsl.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * 검색 요청 수용 제어 설정. 동시 실행 한도는 initialLimit 에서 시작해 관측한 지연에 따라 minLimit ~ maxLimit 사이로 움직인다.
+ * scanShare: 조건 없는 / 비선택적 검색이 쓸 수 있는 한도 비율. maxQueue / maxWait: 레인별 대기열 길이와 대기 시간.
+ * defaultTimeout: 요청에 마감 헤더가 없을 때의 예산. exportTimeout: 내보내기 요청에 마감 헤더가 없을 때의 예산.
+ * 한도는 커넥션 풀 크기를 넘지 않게 잘린다 (SearchAdmission).
+ */
+@ConfigurationProperties("app.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("20") int initialLimit,
+        @DefaultValue("2") int minLimit,
+        @DefaultValue("200") int maxLimit,
+        @DefaultValue("0.5") double scanShare,
+        @DefaultValue("50") int maxQueue,
+        @DefaultValue("100ms") Duration maxWait,
+        @DefaultValue("5s") Duration defaultTimeout,
+        @DefaultValue("5m") Duration exportTimeout) {
+}
@@ -0,0 +1,62 @@
+package com.bhkim.querydsl.config;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 작업을 넘기는 시점의 ThreadLocal 값을 작업 스레드에서도 쓰도록 감싼 실행기. 작업이 끝나면 작업 스레드의 원래 값으로 되돌린다.
+ */
+public final class ContextPropagatingExecutor<T> extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final ThreadLocal<T> context;
+
+    public ContextPropagatingExecutor(ExecutorService delegate, ThreadLocal<T> context) {
+        this.delegate = delegate;
+        this.context = context;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        T value = context.get();
+        delegate.execute(value == null ? command : () -> {
+            T previous = context.get();
+            context.set(value);
+            try {
+                command.run();
+            } finally {
+                if (previous == null) {
+                    context.remove();
+                } else {
+                    context.set(previous);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+}
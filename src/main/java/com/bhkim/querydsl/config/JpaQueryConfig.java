@@ -1,14 +1,44 @@
 package com.bhkim.querydsl.config;
 
+import com.bhkim.querydsl.admission.DeadlineJPAQueryFactory;
+import com.bhkim.querydsl.metrics.RepositoryMetricsAspect;
+import com.bhkim.querydsl.metrics.SqlCaptureListener;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
+@Slf4j
 @Configuration
 public class JpaQueryConfig {
+    // 요청 마감(QueryDeadline)이 걸려 있으면 쿼리마다 남은 시간을 타임아웃으로 건다
     @Bean
     public JPAQueryFactory jpaQueryFactory(EntityManager em) {
-        return new JPAQueryFactory(em);
+        return new DeadlineJPAQueryFactory(em);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.query-metrics.enabled", matchIfMissing = true)
+    public RepositoryMetricsAspect repositoryMetricsAspect(
+            MeterRegistry meterRegistry,
+            @Value("${app.query-metrics.slow-threshold:500ms}") Duration slowThreshold,
+            @Value("${decorator.datasource.enabled:true}") boolean p6spy) {
+        if (!p6spy) {
+            // 문장 수는 p6spy 리스너(SqlCaptureListener)로만 센다
+            log.warn("decorator.datasource.enabled=false: querydsl.repository.statements will always record 0");
+        }
+        return new RepositoryMetricsAspect(meterRegistry, slowThreshold);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.query-metrics.enabled", matchIfMissing = true)
+    public SqlCaptureListener sqlCaptureListener() {
+        return new SqlCaptureListener();
     }
 }
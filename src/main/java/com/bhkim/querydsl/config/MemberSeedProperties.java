@@ -0,0 +1,20 @@
+package com.bhkim.querydsl.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * 초기 데이터 적재 설정. totalRows 가 0 이면 teamCount * membersPerTeam 건을 넣는다.
+ */
+@ConfigurationProperties("app.seed")
+public record MemberSeedProperties(
+        @DefaultValue("2") int teamCount,
+        @DefaultValue("50") int membersPerTeam,
+        @DefaultValue("0") long totalRows,
+        @DefaultValue("500") int batchSize,
+        @DefaultValue("false") boolean csvFastPath) {
+
+    public long rows() {
+        return totalRows > 0 ? totalRows : (long) teamCount * membersPerTeam;
+    }
+}
@@ -0,0 +1,27 @@
+package com.bhkim.querydsl.config;
+
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 샤드 하나의 DataSource / EntityManagerFactory / 트랜잭션 매니저 / JPAQueryFactory.
+ * queryFactory 는 공유 EntityManager 프록시를 쓰므로 transactionManager 의 트랜잭션 안에서 써야 한다.
+ */
+public record MemberShard(int index, HikariDataSource dataSource, EntityManagerFactory entityManagerFactory,
+                          PlatformTransactionManager transactionManager, JPAQueryFactory queryFactory) {
+
+    public <T> T read(Supplier<T> query) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template.execute(status -> query.get());
+    }
+
+    public <T> T write(Supplier<T> statement) {
+        return new TransactionTemplate(transactionManager).execute(status -> statement.get());
+    }
+}
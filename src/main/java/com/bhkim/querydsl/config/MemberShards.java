@@ -0,0 +1,38 @@
+package com.bhkim.querydsl.config;
+
+import java.util.List;
+
+/**
+ * 설정된 샤드 목록과 team_id -> 샤드 라우팅.
+ */
+public class MemberShards implements AutoCloseable {
+    private final List<MemberShard> shards;
+
+    public MemberShards(List<MemberShard> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalStateException("app.sharding.shards is empty");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    public List<MemberShard> all() {
+        return shards;
+    }
+
+    public MemberShard get(int index) {
+        return shards.get(index);
+    }
+
+    // 팀 없는 회원은 0 번 샤드
+    public MemberShard shardFor(Long teamId) {
+        return teamId == null ? shards.get(0) : shards.get((int) Math.floorMod(teamId, (long) shards.size()));
+    }
+
+    @Override
+    public void close() {
+        for (MemberShard shard : shards) {
+            shard.entityManagerFactory().close();
+            shard.dataSource().close();
+        }
+    }
+}
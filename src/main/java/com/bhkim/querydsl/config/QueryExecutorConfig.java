@@ -0,0 +1,31 @@
+package com.bhkim.querydsl.config;
+
+import com.bhkim.querydsl.admission.QueryDeadline;
+import com.bhkim.querydsl.metrics.QueryScope;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class QueryExecutorConfig {
+
+    /**
+     * 한 요청 안에서 여러 쿼리를 동시에 보낼 때 쓰는 실행기.
+     * Java 21 에서는 JDBC 드라이버의 synchronized 구간에서 가상 스레드가 캐리어를 고정(pinning)하므로
+     * 기본은 커넥션 풀 크기 정도의 플랫폼 스레드 풀을 쓰고, virtual=true 일 때만 가상 스레드를 쓴다.
+     * 넘긴 작업의 SQL 도 호출한 리포지토리 메서드의 문장 수에 잡히도록 QueryScope 를, 요청 마감이 쿼리 타임아웃으로 걸리도록
+     * QueryDeadline 을 이어 준다.
+     */
+    @Bean(destroyMethod = "close")
+    public ExecutorService queryExecutor(@Value("${app.query-executor.virtual:false}") boolean virtual,
+                                         @Value("${app.query-executor.pool-size:10}") int poolSize) {
+        if (virtual) {
+            return QueryDeadline.propagating(QueryScope.propagating(Executors.newVirtualThreadPerTaskExecutor()));
+        }
+        return QueryDeadline.propagating(QueryScope.propagating(
+                Executors.newFixedThreadPool(poolSize, Thread.ofPlatform().name("query-", 0).daemon(true).factory())));
+    }
+}
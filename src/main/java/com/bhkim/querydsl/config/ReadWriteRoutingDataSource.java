@@ -0,0 +1,18 @@
+package com.bhkim.querydsl.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 현재 트랜잭션이 readOnly 면 replica, 아니면 primary 커넥션을 준다.
+ * 트랜잭션 시작 시점에는 readOnly 여부가 아직 동기화되지 않으므로 LazyConnectionDataSourceProxy 뒤에 두어야 한다.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route { PRIMARY, REPLICA }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Route.REPLICA : Route.PRIMARY;
+    }
+}
@@ -0,0 +1,74 @@
+package com.bhkim.querydsl.config;
+
+import com.bhkim.querydsl.admission.DeadlineJPAQueryFactory;
+import com.bhkim.querydsl.entity.Member;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.orm.hibernate5.SpringBeanContainer;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * app.sharding.enabled=true 이면 샤드마다 DataSource / EntityManagerFactory / JPAQueryFactory 를 만든다.
+ * 샤드의 EntityManagerFactory 는 빈으로 등록하지 않으므로 기본 EntityManager / 트랜잭션 매니저 (spring.datasource) 는 그대로다.
+ * Hibernate 설정은 spring.jpa.* 를 그대로 따른다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean(destroyMethod = "close")
+    public MemberShards memberShards(ShardingProperties properties, JpaProperties jpaProperties,
+                                     HibernateProperties hibernateProperties, ConfigurableListableBeanFactory beanFactory) {
+        Map<String, Object> jpaPropertyMap = hibernateProperties.determineHibernateProperties(
+                jpaProperties.getProperties(), new HibernateSettings().ddlAuto(() -> "none"));
+        // EntityChangeListener 를 생성자 주입으로 만들 수 있도록
+        jpaPropertyMap.put(AvailableSettings.BEAN_CONTAINER, new SpringBeanContainer(beanFactory));
+
+        List<MemberShard> shards = new ArrayList<>();
+        for (int i = 0; i < properties.shards().size(); i++) {
+            shards.add(shard(i, properties.shards().get(i), properties.poolSize(), jpaPropertyMap));
+        }
+        return new MemberShards(shards);
+    }
+
+    private MemberShard shard(int index, ShardingProperties.Shard shard, int poolSize, Map<String, Object> jpaPropertyMap) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(shard.jdbcUrl())
+                .username(shard.username())
+                .password(shard.password())
+                .build();
+        dataSource.setPoolName("shard-" + index);
+        dataSource.setMaximumPoolSize(poolSize);
+
+        LocalContainerEntityManagerFactoryBean factoryBean = new LocalContainerEntityManagerFactoryBean();
+        factoryBean.setPersistenceUnitName("shard-" + index);
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPackagesToScan(Member.class.getPackageName());
+        factoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        factoryBean.setJpaPropertyMap(jpaPropertyMap);
+        factoryBean.afterPropertiesSet();
+        EntityManagerFactory emf = factoryBean.getObject();
+
+        JpaTransactionManager transactionManager = new JpaTransactionManager(emf);
+        JPAQueryFactory queryFactory = new DeadlineJPAQueryFactory(SharedEntityManagerCreator.createSharedEntityManager(emf));
+        return new MemberShard(index, dataSource, emf, transactionManager, queryFactory);
+    }
+}
@@ -0,0 +1,22 @@
+package com.bhkim.querydsl.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 팀 기준 샤딩 설정 (app.sharding.enabled=true 일 때만 쓴다).
+ * 회원과 팀은 team_id 를 샤드 수로 나눈 나머지 번째 샤드에 둔다 (팀 없는 회원은 0 번). 쓰기는 ShardedMemberWriter 가 보낸다.
+ */
+@ConfigurationProperties("app.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Shard> shards,
+        @DefaultValue("10") int poolSize,
+        @DefaultValue("60s") Duration teamCacheTtl) {
+
+    public record Shard(String jdbcUrl, @DefaultValue("sa") String username, @DefaultValue("") String password) {
+    }
+}
@@ -1,44 +1,21 @@
 package com.bhkim.querydsl.controller;
 
-import com.bhkim.querydsl.entity.Member;
-import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.config.MemberSeedProperties;
+import com.bhkim.querydsl.service.MemberBulkLoader;
 import jakarta.annotation.PostConstruct;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class InitMember {
-    private final InitMemberService initMemberService;
+    private final MemberBulkLoader memberBulkLoader;
+    private final MemberSeedProperties seedProperties;
 
     @PostConstruct
     public void init() {
-        initMemberService.init();
+        memberBulkLoader.load(seedProperties);
     }
-
-    @Component
-    static class InitMemberService {
-        @PersistenceContext
-        EntityManager em;
-
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
-        }
-    }
-
 }
@@ -1,21 +1,151 @@
 package com.bhkim.querydsl.controller;
 
+import com.bhkim.querydsl.admission.AdaptiveConcurrencyLimiter;
+import com.bhkim.querydsl.admission.AdmissionRejectedException;
+import com.bhkim.querydsl.admission.SearchAdmission;
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.LowerBoundPage;
+import com.bhkim.querydsl.dto.MemberCursor;
 import com.bhkim.querydsl.dto.MemberSearchCondition;
 import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.dto.TeamStatsDto;
+import com.bhkim.querydsl.repository.MemberDataVersion;
+import com.bhkim.querydsl.repository.MemberField;
 import com.bhkim.querydsl.repository.MemberRepository;
+import com.bhkim.querydsl.repository.MemberStatsRepository;
+import com.bhkim.querydsl.service.MemberExportService;
+import com.bhkim.querydsl.service.MemberPageService;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.TransactionTimedOutException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.io.IOException;
 import java.util.List;
 
+import static org.springframework.util.StringUtils.hasText;
+
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
+    public static final String TOTAL_LOWER_BOUND_HEADER = "X-Total-Lower-Bound";
+    private static final int MAX_IDS = 10_000;
+
     private final MemberRepository memberRepository;
+    private final MemberExportService memberExportService;
+    private final MemberPageService memberPageService;
+    private final MemberStatsRepository memberStatsRepository;
+    private final MemberDataVersion dataVersion;
+    private final SearchAdmission admission;
 
+    // fields=memberId,username 처럼 주면 그 컬럼만 조회해 그 필드만 내보낸다
+    // 마지막 응답 뒤로 Member/Team 변경이 없으면 (If-None-Match) 조회 없이 304
+    // 검색 / 통계 / 내보내기 엔드포인트는 SearchAdmission 을 거친다 (한도 초과면 429, 마감 헤더는 쿼리마다 타임아웃이 된다)
     @GetMapping("/v1/members")
-    public List<MemberTeamDto> searchMemberV1(MemberSearchCondition condition) {
-        return memberRepository.search(condition);
+    public List<?> searchMemberV1(MemberSearchCondition condition,
+                                  @RequestParam(required = false) List<String> fields,
+                                  @RequestHeader(name = SearchAdmission.DEADLINE_HEADER, required = false) String deadline,
+                                  ServletWebRequest request) {
+        if (dataVersion.isTracking()) {
+            request.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+            if (request.checkNotModified(dataVersion.etag(request.getHeader(HttpHeaders.ACCEPT)))) {
+                return null;
+            }
+        }
+        if (fields == null || fields.isEmpty()) {
+            return admission.call(condition, deadline, () -> memberRepository.search(condition));
+        }
+        List<MemberField> parsed = MemberField.parse(fields);
+        return admission.call(condition, deadline, () -> memberRepository.searchFields(condition, parsed));
+    }
+
+    // count 가 늦어 total 이 하한뿐이면 X-Total-Lower-Bound: true 를 붙인다 (본문에도 totalLowerBound=true)
+    @GetMapping("/v1/members/page")
+    public Page<MemberTeamDto> searchMemberPage(MemberSearchCondition condition, Pageable pageable,
+                                                @RequestHeader(name = SearchAdmission.DEADLINE_HEADER, required = false) String deadline,
+                                                HttpServletResponse response) {
+        Page<MemberTeamDto> page = admission.call(condition, deadline, () -> memberPageService.searchPage(condition, pageable));
+        if (page instanceof LowerBoundPage<?>) {
+            response.setHeader(TOTAL_LOWER_BOUND_HEADER, "true");
+        }
+        return page;
+    }
+
+    @GetMapping("/v2/members")
+    public CursorSlice<MemberTeamDto> searchMemberV2(MemberSearchCondition condition,
+                                                     @RequestParam(required = false) String cursor,
+                                                     @RequestParam(defaultValue = "20") int size,
+                                                     @RequestParam(defaultValue = "ID") MemberCursor.Order order,
+                                                     @RequestHeader(name = SearchAdmission.DEADLINE_HEADER, required = false) String deadline) {
+        MemberCursor memberCursor = hasText(cursor) ? MemberCursor.decode(cursor) : MemberCursor.first(order);
+        return admission.call(condition, deadline,
+                () -> memberRepository.searchSlice(condition, memberCursor, Math.min(Math.max(size, 1), 100)));
+    }
+
+    // 본문은 member id 배열. 입력 순서대로 돌려주고 없는 id 는 빠진다. id 조회라 INDEXED 레인을 쓴다
+    @PostMapping("/v1/members/by-ids")
+    public List<MemberTeamDto> findMembersByIds(@RequestBody List<Long> ids,
+                                                @RequestHeader(name = SearchAdmission.DEADLINE_HEADER, required = false) String deadline) {
+        if (ids.size() > MAX_IDS) {
+            throw new IllegalArgumentException("한 번에 조회할 수 있는 id 는 " + MAX_IDS + " 개까지: " + ids.size());
+        }
+        return admission.call(AdaptiveConcurrencyLimiter.Lane.INDEXED, deadline,
+                () -> memberRepository.findMemberTeamDtosByIds(ids));
+    }
+
+    @GetMapping("/v1/members/stats")
+    public List<TeamStatsDto> memberStats(MemberSearchCondition condition,
+                                          @RequestParam(required = false) Long minMembers,
+                                          @RequestHeader(name = SearchAdmission.DEADLINE_HEADER, required = false) String deadline) {
+        return admission.call(condition, deadline, () -> memberStatsRepository.teamStats(condition, minMembers));
+    }
+
+    // 결과 전체를 읽으므로 SCAN 레인. 마감 헤더가 없으면 app.admission.export-timeout
+    @GetMapping("/v1/members/export")
+    public void exportMembers(MemberSearchCondition condition,
+                              @RequestParam(defaultValue = "NDJSON") MemberExportService.Format format,
+                              @RequestHeader(name = SearchAdmission.DEADLINE_HEADER, required = false) String deadline,
+                              HttpServletResponse response) throws IOException {
+        admission.export(deadline, () -> {
+            response.setCharacterEncoding("UTF-8");
+            response.setContentType(format == MemberExportService.Format.CSV ? "text/csv" : "application/x-ndjson");
+            memberExportService.export(condition, format, response.getOutputStream());
+        });
+    }
+
+    // 리포지토리에서 던진 IllegalArgumentException (허용되지 않은 sort 필드 등)은 InvalidDataAccessApiUsageException 으로 바뀌어 온다
+    @ExceptionHandler({IllegalArgumentException.class, InvalidDataAccessApiUsageException.class})
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String badRequest(RuntimeException e) {
+        return e.getMessage();
+    }
+
+    @ExceptionHandler(AdmissionRejectedException.class)
+    @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+    public String tooManyRequests(AdmissionRejectedException e, HttpServletResponse response) {
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        return e.getMessage();
+    }
+
+    // 마감(X-Request-Deadline-Ms) 안에 쿼리가 끝나지 않았다 (쿼리 타임아웃, 또는 다음 쿼리를 보내기 전에 마감이 지남)
+    @ExceptionHandler({QueryTimeoutException.class, jakarta.persistence.QueryTimeoutException.class,
+            TransactionTimedOutException.class})
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public String deadlineExceeded(RuntimeException e) {
+        return e.getMessage();
     }
 }
@@ -0,0 +1,17 @@
+package com.bhkim.querydsl.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CursorSlice<T> {
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private boolean hasPrev;
+    private String nextCursor;
+    private String prevCursor;
+}
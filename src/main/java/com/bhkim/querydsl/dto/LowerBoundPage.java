@@ -0,0 +1,21 @@
+package com.bhkim.querydsl.dto;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+/**
+ * count 가 제한 시간 안에 끝나지 않아 total 을 "최소 이만큼" 으로만 아는 페이지.
+ * totalElements / totalPages 는 하한이고, 응답에는 totalLowerBound=true 로 표시된다.
+ */
+public class LowerBoundPage<T> extends PageImpl<T> {
+
+    public LowerBoundPage(List<T> content, Pageable pageable, long totalLowerBound) {
+        super(content, pageable, totalLowerBound);
+    }
+
+    public boolean isTotalLowerBound() {
+        return true;
+    }
+}
@@ -0,0 +1,66 @@
+package com.bhkim.querydsl.dto;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * keyset(seek) 페이징 위치. 클라이언트에는 {@link #encode()} 결과만 노출한다.
+ */
+@Getter
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MemberCursor {
+
+    public enum Order { ID, AGE }
+
+    public enum Direction { NEXT, PREV }
+
+    private final Order order;
+    private final Direction direction;
+    private final Integer age;
+    private final Long id;
+
+    public static MemberCursor first(Order order) {
+        return new MemberCursor(order, Direction.NEXT, null, null);
+    }
+
+    public static MemberCursor next(Order order, MemberTeamDto last) {
+        return new MemberCursor(order, Direction.NEXT, last.age(), last.memberId());
+    }
+
+    public static MemberCursor prev(Order order, MemberTeamDto first) {
+        return new MemberCursor(order, Direction.PREV, first.age(), first.memberId());
+    }
+
+    public boolean isFirst() {
+        return id == null;
+    }
+
+    public String encode() {
+        String raw = order + ":" + direction + ":" + (age == null ? "" : age) + ":" + (id == null ? "" : id);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static MemberCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", -1);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+            Order order = Order.valueOf(parts[0]);
+            Integer age = parts[2].isEmpty() ? null : Integer.valueOf(parts[2]);
+            Long id = parts[3].isEmpty() ? null : Long.valueOf(parts[3]);
+            // 첫 페이지는 토큰 없이 요청하므로 토큰에는 항상 경계 키가 있어야 한다 (AGE 는 age 까지)
+            if (id == null || (order == Order.AGE && age == null)) {
+                throw new IllegalArgumentException("invalid cursor: " + token);
+            }
+            return new MemberCursor(order, Direction.valueOf(parts[1]), age, id);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid cursor: " + token, e);
+        }
+    }
+}
@@ -2,10 +2,19 @@ package com.bhkim.querydsl.dto;
 
 import lombok.Data;
 
+import java.util.List;
+
 @Data
 public class MemberSearchCondition {
     private String username;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
+
+    // 여러 팀 중 하나 (IN). teamName 과 함께 주면 둘 다 만족해야 한다
+    private List<String> teamNames;
+    // username 앞부분 일치 (username 인덱스 사용)
+    private String usernamePrefix;
+    // username 부분 일치 (인덱스를 쓸 수 없어 스캔)
+    private String usernameContains;
 }
@@ -1,14 +1,10 @@
 package com.bhkim.querydsl.dto;
 
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.querydsl.core.annotations.QueryProjection;
 
-@Data
-@AllArgsConstructor
-public class MemberTeamDto {
-    private Long memberId;
-    private String username;
-    private int age;
-    private Long teamId;
-    private String teamName;
-}
\ No newline at end of file
+public record MemberTeamDto(Long memberId, String username, int age, Long teamId, String teamName) {
+
+    @QueryProjection
+    public MemberTeamDto {
+    }
+}
@@ -0,0 +1,11 @@
+package com.bhkim.querydsl.dto;
+
+import java.util.List;
+
+/**
+ * 팀별 회원 통계. 팀이 없는 회원은 teamId / teamName 이 null 인 한 행으로 모인다.
+ * ageHistogram[i] 는 나이 i*10 ~ i*10+9 인 회원 수 (첫 칸은 10 미만 전부, 마지막 칸은 90 이상 전부).
+ */
+public record TeamStatsDto(Long teamId, String teamName, long count, double avgAge, int minAge, int maxAge,
+                           List<Long> ageHistogram) {
+}
@@ -0,0 +1,60 @@
+package com.bhkim.querydsl.entity;
+
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import com.bhkim.querydsl.event.EntityChangedEvent.ChangeType;
+import com.bhkim.querydsl.config.MemberShards;
+import com.bhkim.querydsl.event.OutboxWriter;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreRemove;
+import jakarta.persistence.PreUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * Hibernate 가 SpringBeanContainer 로 생성하므로 생성자 주입을 받을 수 있다.
+ * 애플리케이션 이벤트(캐시 무효화)와 함께 같은 트랜잭션의 outbox 에도 변경을 남긴다.
+ * 샤딩 모드에서는 JPA 로 Member/Team 을 쓰지 못한다 (쓰기는 ShardedMemberWriter 가 샤드로 보낸다).
+ */
+@RequiredArgsConstructor
+public class EntityChangeListener {
+    private final ApplicationEventPublisher publisher;
+    private final OutboxWriter outboxWriter;
+    // app.sharding.enabled=true 일 때만 있다
+    private final ObjectProvider<MemberShards> shards;
+
+    // 기본 DB 에 쓴 회원/팀은 어느 샤드에서도 보이지 않는다
+    @PrePersist
+    @PreUpdate
+    @PreRemove
+    public void beforeWrite(Object entity) {
+        if (shards.getIfAvailable() != null) {
+            throw new IllegalStateException(entity.getClass().getSimpleName()
+                    + " writes are not routed to shards through JPA; use ShardedMemberWriter when app.sharding.enabled=true");
+        }
+    }
+
+    @PostPersist
+    public void postPersist(Object entity) {
+        publish(entity, ChangeType.INSERT);
+    }
+
+    @PostUpdate
+    public void postUpdate(Object entity) {
+        publish(entity, ChangeType.UPDATE);
+    }
+
+    @PostRemove
+    public void postRemove(Object entity) {
+        publish(entity, ChangeType.DELETE);
+    }
+
+    private void publish(Object entity, ChangeType changeType) {
+        Object id = entity instanceof Member m ? m.getId() : ((Team) entity).getId();
+        publisher.publishEvent(new EntityChangedEvent(entity.getClass(), id, changeType));
+        outboxWriter.append(entity, changeType);
+    }
+}
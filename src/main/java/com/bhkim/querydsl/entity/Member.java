@@ -8,11 +8,18 @@ import lombok.ToString;
 
 @Getter
 @Entity
-@Table(name = "MEMBER")
+@Table(name = "MEMBER", indexes = {
+        @Index(name = "idx_member_username", columnList = "username"),
+        @Index(name = "idx_member_team_age", columnList = "team_id, age"),
+        @Index(name = "idx_member_age", columnList = "age")
+})
+@EntityListeners(EntityChangeListener.class)
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
 @ToString(of = {"id", "username", "age"})
 public class Member {
-    @Id  @GeneratedValue
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "member_seq")
+    @SequenceGenerator(name = "member_seq", sequenceName = "member_seq", allocationSize = 100)
     @Column(name = "member_id")
     private Long id;
 
@@ -40,6 +47,15 @@ public class Member {
         }
     }
 
+    /**
+     * 대량 적재용. team.getMembers() 를 건드리지 않으므로 프록시(getReference)를 넘겨도 초기화되지 않는다.
+     */
+    public static Member ofTeamReference(String username, int age, Team team) {
+        Member member = new Member(username, age);
+        member.team = team;
+        return member;
+    }
+
     public void changeTeam(Team team) {
         this.team = team;
         team.getMembers().add(this);
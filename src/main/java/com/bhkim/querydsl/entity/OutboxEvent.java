@@ -0,0 +1,43 @@
+package com.bhkim.querydsl.entity;
+
+import com.bhkim.querydsl.event.EntityChangedEvent.ChangeType;
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Member/Team 변경 outbox. 변경과 같은 트랜잭션에서 OutboxWriter 가 JDBC 로 넣고, OutboxPublisher 가 꺼내 sink 로 보낸 뒤 지운다.
+ * 테이블 생성과 조회에만 엔티티를 쓴다 (넣을 때는 flush 도중이라 영속성 컨텍스트를 쓸 수 없다).
+ */
+@Getter
+@Entity
+@Table(name = "OUTBOX_EVENT")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"id", "aggregateType", "aggregateId", "changeType"})
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Member / Team
+    @Column(nullable = false, length = 20)
+    private String aggregateType;
+
+    // BULK 이면 null
+    private Long aggregateId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private ChangeType changeType;
+
+    // 변경 후 상태 JSON (Member: username, age, teamId / Team: name). DELETE / BULK 이면 null
+    @Column(length = 1000)
+    private String payload;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
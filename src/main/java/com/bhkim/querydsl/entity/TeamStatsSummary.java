@@ -0,0 +1,52 @@
+package com.bhkim.querydsl.entity;
+
+import jakarta.persistence.*;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.time.LocalDateTime;
+
+/**
+ * 조건 없는 팀별 통계를 미리 계산해 둔 요약 테이블. MemberStatsRepository.refreshSummary() 가 통째로 다시 채운다.
+ * 평균은 합계로 저장해 두고 읽을 때 나눈다.
+ */
+@Getter
+@Entity
+@Table(name = "TEAM_STATS_SUMMARY")
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString(of = {"teamId", "teamName", "memberCount"})
+public class TeamStatsSummary {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "team_stats_summary_seq")
+    @SequenceGenerator(name = "team_stats_summary_seq", sequenceName = "team_stats_summary_seq", allocationSize = 100)
+    private Long id;
+
+    // 팀이 없는 회원 행은 null
+    private Long teamId;
+    private String teamName;
+    private long memberCount;
+    private long ageSum;
+    private int minAge;
+    private int maxAge;
+
+    @JdbcTypeCode(SqlTypes.ARRAY)
+    private long[] ageHistogram;
+
+    private LocalDateTime refreshedAt;
+
+    public TeamStatsSummary(Long teamId, String teamName, long memberCount, long ageSum, int minAge, int maxAge,
+                            long[] ageHistogram, LocalDateTime refreshedAt) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.memberCount = memberCount;
+        this.ageSum = ageSum;
+        this.minAge = minAge;
+        this.maxAge = maxAge;
+        this.ageHistogram = ageHistogram;
+        this.refreshedAt = refreshedAt;
+    }
+}
@@ -0,0 +1,14 @@
+package com.bhkim.querydsl.event;
+
+/**
+ * Member/Team 의 insert/update/delete 가 flush 될 때 발행된다.
+ * 벌크 연산처럼 영속성 컨텍스트를 거치지 않는 변경은 id 가 null 이다.
+ */
+public record EntityChangedEvent(Class<?> entityType, Object id, ChangeType changeType) {
+
+    public enum ChangeType { INSERT, UPDATE, DELETE, BULK }
+
+    public static EntityChangedEvent bulk(Class<?> entityType) {
+        return new EntityChangedEvent(entityType, null, ChangeType.BULK);
+    }
+}
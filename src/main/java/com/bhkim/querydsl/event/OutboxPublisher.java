@@ -0,0 +1,90 @@
+package com.bhkim.querydsl.event;
+
+import com.bhkim.querydsl.entity.OutboxEvent;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.bhkim.querydsl.entity.QOutboxEvent.outboxEvent;
+
+/**
+ * outbox 를 poll-interval 마다 batch-size 건씩 id 순서로 꺼내 sink 로 보내고 지운다.
+ * 보내기와 지우기가 한 트랜잭션이라 sink 가 실패하면 그 배치는 남아 다음 주기에 다시 보낸다.
+ * 그래서 sink 는 같은 이벤트를 두 번 받을 수 있다 (id 로 중복을 거른다).
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.outbox", name = "enabled", havingValue = "true")
+public class OutboxPublisher implements MeterBinder {
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final LongAdder published = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public OutboxPublisher(JPAQueryFactory queryFactory, PlatformTransactionManager transactionManager, OutboxSink sink,
+                           @Value("${app.outbox.batch-size:500}") int batchSize) {
+        this.queryFactory = queryFactory;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${app.outbox.poll-interval:1s}", fixedDelayString = "${app.outbox.poll-interval:1s}")
+    public void publishPending() {
+        try {
+            // 꽉 찬 배치가 나오면 밀린 것이므로 다음 주기를 기다리지 않고 이어서 보낸다
+            int sent;
+            do {
+                sent = publishBatch();
+            } while (sent == batchSize);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("outbox publish failed, retrying next interval", e);
+        }
+    }
+
+    /**
+     * 한 배치를 보내고 보낸 건수를 돌려준다.
+     */
+    public int publishBatch() {
+        Integer sent = transactionTemplate.execute(status -> {
+            List<OutboxEvent> events = queryFactory
+                    .selectFrom(outboxEvent)
+                    .orderBy(outboxEvent.id.asc())
+                    .limit(batchSize)
+                    .fetch();
+            if (events.isEmpty()) {
+                return 0;
+            }
+            sink.publish(events);
+            // 보낸 id 만 지운다 (그 사이 커밋된 더 작은 id 는 다음 배치에서 보낸다)
+            queryFactory.delete(outboxEvent)
+                    .where(outboxEvent.id.in(events.stream().map(OutboxEvent::getId).toList()))
+                    .execute();
+            return events.size();
+        });
+        published.add(sent);
+        return sent;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("outbox.published", published, LongAdder::sum)
+                .register(registry);
+        FunctionCounter.builder("outbox.failures", failures, LongAdder::sum)
+                .register(registry);
+    }
+}
@@ -0,0 +1,14 @@
+package com.bhkim.querydsl.event;
+
+import com.bhkim.querydsl.entity.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * outbox 에서 꺼낸 변경 이벤트를 받는 곳. 예외를 던지면 그 배치는 outbox 에 남아 다음 주기에 다시 보낸다 (at-least-once).
+ * 이벤트는 outbox id 순서로 온다.
+ */
+public interface OutboxSink {
+
+    void publish(List<OutboxEvent> events);
+}
@@ -0,0 +1,153 @@
+package com.bhkim.querydsl.event;
+
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent.ChangeType;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 변경 이벤트를 outbox 테이블에 쓴다 (app.outbox.enabled=true 일 때만).
+ * 엔티티 리스너는 flush 도중에 불리므로 EntityManager 로 persist 하지 않고, 트랜잭션마다 모아 두었다가
+ * 커밋 직전(beforeCommit)에 JdbcTemplate batchUpdate 한 번으로 쓴다.
+ * 버퍼는 쓰기 트랜잭션이 시작될 때 건다 (TransactionExecutionListener 는 Spring Boot 가 트랜잭션 매니저에 등록한다).
+ * 커밋할 때의 flush 에서 처음 생기는 이벤트도 있기 때문이다.
+ * JdbcTemplate 은 진행 중인 JPA 트랜잭션의 커넥션을 그대로 쓰므로 변경과 함께 커밋 / 롤백된다.
+ */
+@Component
+public class OutboxWriter implements TransactionExecutionListener {
+    private static final String INSERT = "insert into outbox_event (aggregate_type, aggregate_id, change_type, payload, created_at) "
+            + "values (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    // 엔티티 리스너가 EntityManagerFactory 를 만드는 도중에 생성되므로 둘 다 쓸 때 꺼낸다
+    private final ObjectProvider<EntityManagerFactory> entityManagerFactory;
+    private final ObjectProvider<ObjectMapper> objectMapper;
+    private final boolean enabled;
+
+    public OutboxWriter(JdbcTemplate jdbcTemplate, ObjectProvider<EntityManagerFactory> entityManagerFactory,
+                        ObjectProvider<ObjectMapper> objectMapper, @Value("${app.outbox.enabled:false}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManagerFactory = entityManagerFactory;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+    }
+
+    public void append(Object entity, ChangeType changeType) {
+        if (!enabled) {
+            return;
+        }
+        if (entity instanceof Member member) {
+            append("Member", member.getId(), changeType, changeType == ChangeType.DELETE ? null : payload(member));
+        } else if (entity instanceof Team team) {
+            append("Team", team.getId(), changeType, changeType == ChangeType.DELETE ? null : payload(team));
+        }
+    }
+
+    @Override
+    public void afterBegin(TransactionExecution transaction, @Nullable Throwable beginFailure) {
+        if (enabled && beginFailure == null && !transaction.isReadOnly()
+                && TransactionSynchronizationManager.isSynchronizationActive()) {
+            buffer();
+        }
+    }
+
+    // 벌크 연산은 어떤 행이 바뀌었는지 모르므로 "전부 다시 읽어라" 한 건만 남긴다
+    @EventListener
+    public void onBulk(EntityChangedEvent event) {
+        if (enabled && event.changeType() == ChangeType.BULK) {
+            append(event.entityType().getSimpleName(), null, ChangeType.BULK, null);
+        }
+    }
+
+    private void append(String aggregateType, Long aggregateId, ChangeType changeType, String payload) {
+        Object[] row = {aggregateType, aggregateId, changeType.name(), payload, LocalDateTime.now()};
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            jdbcTemplate.update(INSERT, row);
+            return;
+        }
+        buffer().rows.add(row);
+    }
+
+    // 동기화 목록은 트랜잭션(REQUIRES_NEW 포함)마다 따로 보관되므로 버퍼도 트랜잭션마다 하나다.
+    // 리스너가 없는 트랜잭션 매니저에서는 첫 이벤트 때 건다
+    private Buffer buffer() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof Buffer buffer && buffer.owner() == this) {
+                return buffer;
+            }
+        }
+        Buffer buffer = new Buffer();
+        TransactionSynchronizationManager.registerSynchronization(buffer);
+        return buffer;
+    }
+
+    private String payload(Member member) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("username", member.getUsername());
+        state.put("age", member.getAge());
+        // getTeam() 은 프록시일 수 있지만 id 만 읽으므로 초기화되지 않는다
+        state.put("teamId", member.getTeam() == null ? null : member.getTeam().getId());
+        return json(state);
+    }
+
+    private String payload(Team team) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("name", team.getName());
+        return json(state);
+    }
+
+    private String json(Map<String, Object> state) {
+        try {
+            // JPA 슬라이스 테스트처럼 Jackson 자동 설정이 없는 컨텍스트에서는 기본 설정으로 쓴다
+            return objectMapper.getIfAvailable(ObjectMapper::new).writeValueAsString(state);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private final class Buffer implements TransactionSynchronization {
+        private final List<Object[]> rows = new ArrayList<>();
+
+        OutboxWriter owner() {
+            return OutboxWriter.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            // JpaTransactionManager 는 beforeCommit 다음에 flush 하므로, 커밋 때 나갈 변경의 이벤트까지 모으려면 먼저 flush 한다
+            EntityManager em = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory.getObject());
+            if (!readOnly && em != null) {
+                em.flush();
+            }
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT, rows);
+                rows.clear();
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            rows.clear();
+        }
+    }
+}
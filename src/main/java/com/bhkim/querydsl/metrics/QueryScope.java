@@ -0,0 +1,69 @@
+package com.bhkim.querydsl.metrics;
+
+import com.bhkim.querydsl.config.ContextPropagatingExecutor;
+import com.p6spy.engine.common.StatementInformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 리포지토리 메서드 한 번의 실행 동안 발생한 SQL 을 모은다. 현재 스레드에 묶이고,
+ * {@link #propagating(ExecutorService)} 로 감싼 실행기에 넘긴 작업에도 이어진다 (그래서 집계는 스레드 안전하게 한다).
+ * SQL 문자열(바인딩 값 포함)은 느린 쿼리로 판정됐을 때만 만든다.
+ */
+public final class QueryScope {
+    private static final int MAX_CAPTURED = 10;
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private final List<StatementInformation> captured = Collections.synchronizedList(new ArrayList<>(2));
+
+    private QueryScope() {
+    }
+
+    static QueryScope open() {
+        if (CURRENT.get() != null) {
+            return null;
+        }
+        QueryScope scope = new QueryScope();
+        CURRENT.set(scope);
+        return scope;
+    }
+
+    void close() {
+        CURRENT.remove();
+    }
+
+    static void record(StatementInformation statement) {
+        QueryScope scope = CURRENT.get();
+        if (scope == null) {
+            return;
+        }
+        if (scope.statements.incrementAndGet() <= MAX_CAPTURED) {
+            scope.captured.add(statement);
+        }
+    }
+
+    int statements() {
+        return statements.get();
+    }
+
+    String renderSql() {
+        synchronized (captured) {
+            return captured.stream()
+                    .map(StatementInformation::getSqlWithValues)
+                    .collect(Collectors.joining(";\n"));
+        }
+    }
+
+    /**
+     * 작업을 넘기는 시점의 scope 를 작업 스레드에서도 쓰도록 감싼 실행기.
+     */
+    public static ExecutorService propagating(ExecutorService delegate) {
+        return new ContextPropagatingExecutor<>(delegate, CURRENT);
+    }
+}
@@ -0,0 +1,141 @@
+package com.bhkim.querydsl.metrics;
+
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.repository.MemberSearchKey;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.data.domain.Slice;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MemberRepositoryCustomImpl 의 각 메서드를 메서드명 + 조건 조합(shape) 태그로 측정한다.
+ * - querydsl.repository.query : 지연 시간
+ * - querydsl.repository.rows : 반환 건수
+ * - querydsl.repository.statements : 실행된 SQL 문 수
+ * 임계값을 넘으면 바인딩 값이 들어간 SQL 과 검색 조건을 경고 로그로 남긴다.
+ * 미터는 (메서드, shape) 별로 처음 한 번만 등록하고 이후에는 캐시에서 꺼내 쓴다.
+ */
+@Slf4j
+@Aspect
+public class RepositoryMetricsAspect {
+    private static final String NO_CONDITION = "none";
+
+    private final MeterRegistry registry;
+    private final long slowThresholdNanos;
+    private final ConcurrentHashMap<MeterKey, Meters> meters = new ConcurrentHashMap<>();
+    // 실패 타이머는 실패가 난 조합에만 만든다
+    private final ConcurrentHashMap<MeterKey, Timer> errors = new ConcurrentHashMap<>();
+
+    public RepositoryMetricsAspect(MeterRegistry registry, Duration slowThreshold) {
+        this.registry = registry;
+        this.slowThresholdNanos = slowThreshold.toNanos();
+    }
+
+    @Around("execution(public * com.bhkim.querydsl.repository.MemberRepositoryCustomImpl.*(..))")
+    public Object measure(ProceedingJoinPoint joinPoint) throws Throwable {
+        QueryScope scope = QueryScope.open();
+        if (scope == null) {
+            // 리포지토리 메서드 안에서 다시 호출된 경우 바깥 측정에 합산한다
+            return joinPoint.proceed();
+        }
+
+        MemberSearchCondition condition = findCondition(joinPoint.getArgs());
+        MeterKey key = new MeterKey(joinPoint.getSignature().getName(), condition == null ? NO_CONDITION : shape(condition));
+        long start = System.nanoTime();
+        boolean failed = false;
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable e) {
+            failed = true;
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            scope.close();
+            record(key, failed, elapsed, result, scope);
+            if (elapsed >= slowThresholdNanos) {
+                log.warn("slow query method={} elapsed={}ms condition={} statements={}\n{}",
+                        joinPoint.getSignature().toShortString(), elapsed / 1_000_000, condition,
+                        scope.statements(), scope.renderSql());
+            }
+        }
+    }
+
+    private void record(MeterKey key, boolean failed, long elapsed, Object result, QueryScope scope) {
+        Meters meter = meters.computeIfAbsent(key, this::register);
+        Timer timer = failed ? errors.computeIfAbsent(key, k -> timer(tags(k), "error")) : meter.success();
+        timer.record(elapsed, TimeUnit.NANOSECONDS);
+        meter.statements().record(scope.statements());
+        long rows = rows(result);
+        if (rows >= 0) {
+            meter.rows().record(rows);
+        }
+    }
+
+    private Meters register(MeterKey key) {
+        Tags tags = tags(key);
+        return new Meters(
+                timer(tags, "success"),
+                DistributionSummary.builder("querydsl.repository.statements").tags(tags).register(registry),
+                DistributionSummary.builder("querydsl.repository.rows").tags(tags).register(registry));
+    }
+
+    private static Tags tags(MeterKey key) {
+        return Tags.of("method", key.method(), "shape", key.shape());
+    }
+
+    private Timer timer(Tags tags, String outcome) {
+        return Timer.builder("querydsl.repository.query")
+                .tags(tags)
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private MemberSearchCondition findCondition(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof MemberSearchCondition condition) {
+                return condition;
+            }
+        }
+        return null;
+    }
+
+    private String shape(MemberSearchCondition condition) {
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        int shape = key.shape();
+        String basic = shape == 0 ? NO_CONDITION : Integer.toBinaryString(shape | MemberSearchKey.SHAPE_COUNT).substring(1);
+        // IN / prefix / contains 조건은 값 종류가 많아 태그를 나누지 않고 표시만 붙인다
+        return key.isBasic() ? basic : basic + "+";
+    }
+
+    private long rows(Object result) {
+        if (result instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (result instanceof Slice<?> slice) {
+            return slice.getNumberOfElements();
+        }
+        if (result instanceof CursorSlice<?> slice) {
+            return slice.getContent().size();
+        }
+        return -1;
+    }
+
+    private record MeterKey(String method, String shape) {
+    }
+
+    private record Meters(Timer success, DistributionSummary statements, DistributionSummary rows) {
+    }
+}
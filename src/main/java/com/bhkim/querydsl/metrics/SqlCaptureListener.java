@@ -0,0 +1,18 @@
+package com.bhkim.querydsl.metrics;
+
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+
+import java.sql.SQLException;
+
+/**
+ * p6spy 가 감싼 DataSource 에서 실행되는 모든 문장을 현재 {@link QueryScope} 에 기록한다.
+ * p6spy 를 끈 환경에서는 문장 수가 0 으로 집계된다.
+ */
+public class SqlCaptureListener extends SimpleJdbcEventListener {
+
+    @Override
+    public void onAfterAnyExecute(StatementInformation statementInformation, long timeElapsedNanos, SQLException e) {
+        QueryScope.record(statementInformation);
+    }
+}
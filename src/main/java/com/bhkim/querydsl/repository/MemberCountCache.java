@@ -0,0 +1,68 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.cache.ExpiringLruCache;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * searchPageComplex 의 count 결과를 검색 조건별로 캐시한다.
+ * Member/Team 변경이 flush 되는 즉시 한 번, 해당 트랜잭션이 끝날 때 한 번 더 비운다.
+ * 커밋 전 값이 다른 트랜잭션에 잠깐 보일 수 있지만 total 은 근사치로 충분하다고 본다.
+ * 비우기와 겹친 조회 결과는 캐시에 남기지 않는다 (남기면 TTL 까지 오래된 total 이 나간다).
+ */
+@Component
+public class MemberCountCache {
+    private final boolean enabled;
+    private final ExpiringLruCache<MemberSearchKey, Long> cache;
+    private final AtomicLong generation = new AtomicLong();
+
+    public MemberCountCache(@Value("${app.count-cache.enabled:true}") boolean enabled,
+                            @Value("${app.count-cache.max-size:1000}") int maxSize,
+                            @Value("${app.count-cache.ttl:30s}") Duration ttl) {
+        this.enabled = enabled;
+        this.cache = new ExpiringLruCache<>(maxSize, ttl.toMillis());
+    }
+
+    public long count(MemberSearchKey key, LongSupplier countQuery) {
+        if (!enabled) {
+            return countQuery.getAsLong();
+        }
+        Long cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        long count = countQuery.getAsLong();
+        if (generation.get() == loadedAt) {
+            cache.put(key, count);
+            // 확인과 put 사이에 비워졌으면 방금 넣은 값을 다시 뺀다
+            if (generation.get() != loadedAt) {
+                cache.invalidate(key);
+            }
+        }
+        return count;
+    }
+
+    @EventListener
+    public void onChange(EntityChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterCompletion(EntityChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+}
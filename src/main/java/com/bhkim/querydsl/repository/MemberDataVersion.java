@@ -0,0 +1,51 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Member/Team 데이터 버전. 변경이 flush 될 때와 그 트랜잭션이 끝날 때 올라간다 (커밋 후에 올라가야 304 가 옛 데이터를 가리키지 않는다).
+ * 조회 전에 읽은 버전으로 ETag 를 만들므로 조회 중 커밋이 있으면 다음 요청은 200 을 받는다 (잘못된 304 는 없다).
+ * <p>
+ * 프로세스 안의 카운터라 이 인스턴스를 거치는 쓰기만 안다. replica (복제 지연) 나 샤딩 (샤드 직접 쓰기) 모드에서는 끈다.
+ */
+@Component
+public class MemberDataVersion {
+    // 재시작하면 카운터가 0 부터 다시 시작하므로 ETag 에 인스턴스 구분자를 넣는다
+    private final String epoch = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong();
+    private final boolean tracking;
+
+    public MemberDataVersion(@Value("${app.datasource.replica.jdbc-url:}") String replicaUrl,
+                             @Value("${app.sharding.enabled:false}") boolean sharded) {
+        this.tracking = replicaUrl.isEmpty() && !sharded;
+    }
+
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    /**
+     * 현재 버전의 ETag. 같은 URL 이라도 표현(JSON / CBOR / Smile)이 다르면 다른 값이 되도록 Accept 를 섞는다.
+     */
+    public String etag(String accept) {
+        return epoch + "-" + version.get() + "-" + Integer.toHexString(accept == null ? 0 : accept.hashCode());
+    }
+
+    @EventListener
+    public void onChange(EntityChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterCompletion(EntityChangedEvent event) {
+        version.incrementAndGet();
+    }
+}
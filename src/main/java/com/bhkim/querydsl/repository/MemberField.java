@@ -0,0 +1,71 @@
+package com.bhkim.querydsl.repository;
+
+import com.querydsl.core.types.Expression;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * fields= 로 고를 수 있는 검색 결과 컬럼. 이름은 MemberTeamDto 의 JSON 필드명과 같다.
+ * teamId 는 member.team_id 외래 키로 읽으므로 team 조인이 필요 없다.
+ */
+public enum MemberField {
+    MEMBER_ID("memberId", member.id, false),
+    USERNAME("username", member.username, false),
+    AGE("age", member.age, false),
+    TEAM_ID("teamId", member.team.id, false),
+    TEAM_NAME("teamName", team.name, true);
+
+    private final String jsonName;
+    private final Expression<?> expression;
+    private final boolean teamJoin;
+
+    MemberField(String jsonName, Expression<?> expression, boolean teamJoin) {
+        this.jsonName = jsonName;
+        this.expression = expression;
+        this.teamJoin = teamJoin;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    public Expression<?> expression() {
+        return expression;
+    }
+
+    public boolean teamJoin() {
+        return teamJoin;
+    }
+
+    /**
+     * "memberId,username" 처럼 받은 이름을 요청 순서대로 바꾼다 (중복 제거). 모르는 이름이면 IllegalArgumentException.
+     */
+    public static List<MemberField> parse(List<String> names) {
+        Set<MemberField> fields = new LinkedHashSet<>();
+        for (String name : names) {
+            String trimmed = name.trim();
+            if (!trimmed.isEmpty()) {
+                fields.add(of(trimmed));
+            }
+        }
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("fields is empty");
+        }
+        return new ArrayList<>(fields);
+    }
+
+    private static MemberField of(String jsonName) {
+        for (MemberField field : values()) {
+            if (field.jsonName.equals(jsonName)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("unknown field: " + jsonName);
+    }
+}
@@ -0,0 +1,160 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.entity.Member;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * 검색 조건 16가지 조합을 H2 EXPLAIN 으로 돌려서 MEMBER 를 전체 스캔하는 조합을 찾는다.
+ * 검사하는 SQL 은 검색 경로(MemberSearchQueryCache / MemberSearchPredicates)가 만든 쿼리를 Hibernate 가 렌더링한 그대로다.
+ * 실행 직전에 StatementInspector 로 SQL 을 가로채고 실행은 하지 않는다 (파라미터는 ? 그대로 EXPLAIN 한다).
+ * app.schema-advisor.enabled=true 이면 기동 시 결과를 로그로 남긴다.
+ */
+@Slf4j
+@Component
+public class MemberIndexAdvisor {
+    // H2 는 테이블 접근 방식을 FROM 다음 주석으로 보여준다. 조건(:) 없는 인덱스/tableScan 은 전체 스캔이다.
+    // 스키마와 Hibernate 가 붙이는 별칭(m1_0, m2_0 ...)은 쿼리 모양에 따라 달라지므로 아무 값이나 받는다
+    private static final String TABLE_ACCESS = "FROM \"[^\"]+\"\\.\"%s\" \"[^\"]+\"\\s*/\\* ([^*]*)\\*/";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SessionFactory sessionFactory;
+    private final TeamNameCache teamNameCache;
+    private final MemberSearchPredicates predicates;
+    private final boolean reportOnStartup;
+    private final Pattern memberAccess;
+
+    public MemberIndexAdvisor(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                              TeamNameCache teamNameCache, MemberSearchPredicates predicates,
+                              @Value("${app.schema-advisor.enabled:false}") boolean reportOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.teamNameCache = teamNameCache;
+        this.predicates = predicates;
+        this.reportOnStartup = reportOnStartup;
+        // 테이블 이름은 매핑에서 가져온다 (H2 는 따옴표 없는 이름을 대문자로 보여준다)
+        String table = ((AbstractEntityPersister) sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(Member.class)).getTableName();
+        this.memberAccess = Pattern.compile(TABLE_ACCESS.formatted(Pattern.quote(table.toUpperCase(Locale.ROOT))));
+    }
+
+    public record ShapePlan(int shape, String sql, String plan, boolean fullScan) {
+    }
+
+    /**
+     * 기본 조건 조합마다 MemberSearchQueryCache 가 보내는 SQL 의 실행 계획.
+     * 팀 조건은 실제 팀 이름으로 만들어 팀 id 로 풀리는 경로(팀 캐시가 켜져 있을 때)를 그대로 탄다.
+     */
+    public List<ShapePlan> explainAll() {
+        String teamName = jdbcTemplate.queryForList("select name from team order by team_id limit 1", String.class)
+                .stream().findFirst().orElse("teamA");
+        List<ShapePlan> plans = new ArrayList<>(MemberSearchKey.SHAPE_COUNT);
+        for (int shape = 0; shape < MemberSearchKey.SHAPE_COUNT; shape++) {
+            MemberSearchKey key = new MemberSearchKey(
+                    (shape & MemberSearchKey.USERNAME) != 0 ? "member1" : null,
+                    (shape & MemberSearchKey.TEAM_NAME) != 0 ? teamName : null,
+                    (shape & MemberSearchKey.AGE_GOE) != 0 ? 20 : null,
+                    (shape & MemberSearchKey.AGE_LOE) != 0 ? 30 : null);
+            String sql = capture(session -> new MemberSearchQueryCache(session, teamNameCache, true).fetch(key));
+            plans.add(plan(shape, sql));
+        }
+        return plans;
+    }
+
+    /**
+     * 기본 조합 밖의 조건(IN, prefix, contains)은 MemberSearchPredicates 로 만든 쿼리의 실행 계획을 본다.
+     */
+    public ShapePlan explain(MemberSearchCondition condition) {
+        String sql = capture(session -> new JPAQueryFactory(session)
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(predicates.where(condition))
+                .fetch());
+        return plan(MemberSearchKey.of(condition).shape(), sql);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void report() {
+        if (!reportOnStartup) {
+            return;
+        }
+        for (ShapePlan plan : explainAll()) {
+            if (plan.fullScan() && plan.shape() != 0) {
+                log.warn("member search shape {} falls back to a full scan\n{}\n{}", plan.shape(), plan.sql(), plan.plan());
+            } else {
+                log.info("member search shape {} full scan: {}", plan.shape(), plan.fullScan());
+            }
+        }
+    }
+
+    boolean isFullScan(String plan) {
+        Matcher matcher = memberAccess.matcher(plan);
+        if (!matcher.find()) {
+            return true;
+        }
+        String access = matcher.group(1);
+        return access.contains("tableScan") || !access.contains(":");
+    }
+
+    private ShapePlan plan(int shape, String sql) {
+        String plan = String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class));
+        return new ShapePlan(shape, sql, plan, isFullScan(plan));
+    }
+
+    /**
+     * 이 세션에서 처음 실행하려는 SQL 을 돌려준다. 실행은 inspector 에서 예외로 끊는다.
+     */
+    private String capture(Consumer<Session> query) {
+        CapturingInspector inspector = new CapturingInspector();
+        try (Session session = sessionFactory.withOptions().statementInspector(inspector).openSession()) {
+            query.accept(session);
+        } catch (RuntimeException e) {
+            if (inspector.sql == null) {
+                throw e;
+            }
+        }
+        if (inspector.sql == null) {
+            throw new IllegalStateException("no SQL was issued");
+        }
+        return inspector.sql;
+    }
+
+    private static final class CapturingInspector implements StatementInspector {
+        private String sql;
+
+        @Override
+        public String inspect(String sql) {
+            this.sql = sql;
+            throw new Captured();
+        }
+    }
+
+    private static final class Captured extends RuntimeException {
+        Captured() {
+            super("captured", null, false, false);
+        }
+    }
+}
@@ -1,18 +1,64 @@
 package com.bhkim.querydsl.repository;
 
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.MemberCursor;
 import com.bhkim.querydsl.dto.MemberSearchCondition;
 import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public interface MemberRepositoryCustom {
     List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition);
 
     List<MemberTeamDto> search(MemberSearchCondition condition);
 
+    // 요청한 컬럼만 select 한다. team 컬럼을 고르지 않으면 team 조인도 하지 않는다. 키는 MemberField.jsonName()
+    List<Map<String, Object>> searchFields(MemberSearchCondition condition, List<MemberField> fields);
+
+    // 결과를 List 로 모으지 않고 커서로 읽는다. 트랜잭션 안에서 사용하고 반드시 close 해야 한다.
+    Stream<MemberTeamDto> stream(MemberSearchCondition condition);
+
+    // id 로 여러 회원을 조회한다. 입력 순서대로(중복 제거), 없는 id 는 빠진다. IN 절은 청크로 나누고 2의 거듭제곱 길이로 맞춘다
+    List<MemberTeamDto> findMemberTeamDtosByIds(Collection<Long> ids);
+
     // 쿼리 하나로 paging 처리
     Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable page);
+
+    // searchPageComplex 를 구성하는 content / count 쿼리. 따로 (병렬로) 실행할 때 사용
+    List<MemberTeamDto> searchPageContent(MemberSearchCondition condition, Pageable page);
+
+    long searchCount(MemberSearchCondition condition);
+
+    // count 쿼리 없이 size + 1 건 조회로 다음 페이지 여부만 판단
+    Slice<MemberTeamDto> searchSliceNoCount(MemberSearchCondition condition, Pageable page);
+
+    // member.team 을 fetch join 으로 한 번에 조회 (쿼리 1회)
+    List<Member> findAllWithTeam(MemberSearchCondition condition);
+
+    // 회원 조회 후 소속 팀을 IN 절 한 번으로 채운다 (쿼리 2회, 팀 중복 행이 없다)
+    List<Member> findAllWithTeamInBatch(MemberSearchCondition condition);
+
+    // offset 대신 커서(member.id 또는 (age, id)) 기준으로 다음/이전 slice 조회
+    CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size);
+
+    // 아래 벌크 연산은 update / delete 한 문장으로 실행하고 영향받은 행 수를 돌려준다.
+    // 실행 전 flush, 실행 후 영속성 컨텍스트를 비우므로 이전에 조회한 엔티티는 다시 조회해서 써야 한다.
+    // 조건이 하나도 없으면 IllegalArgumentException (테이블 전체에 적용되지 않도록)
+    long bulkAddAge(MemberSearchCondition condition, int delta);
+
+    // teamId 가 null 이면 팀에서 뺀다
+    long bulkChangeTeam(MemberSearchCondition condition, Long teamId);
+
+    long bulkDelete(MemberSearchCondition condition);
+
+    // 전체 삭제는 이름으로 드러나게 따로 둔다
+    long bulkDeleteAll();
 }
 
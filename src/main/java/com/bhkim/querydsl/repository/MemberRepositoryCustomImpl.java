@@ -1,128 +1,581 @@
 package com.bhkim.querydsl.repository;
 
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.MemberCursor;
 import com.bhkim.querydsl.dto.MemberSearchCondition;
 import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.QueryResults;
-import com.querydsl.core.types.Projections;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import com.querydsl.jpa.impl.JPAUpdateClause;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static com.bhkim.querydsl.entity.QMember.member;
 import static com.bhkim.querydsl.entity.QTeam.team;
-import static io.micrometer.common.util.StringUtils.isBlank;
-import static org.springframework.util.StringUtils.hasText;
 
+// 조회는 읽기 전용 트랜잭션: flush 모드 MANUAL, 엔티티 스냅샷 생략, replica 가 있으면 replica 로 라우팅
 @RequiredArgsConstructor
+@Transactional(readOnly = true)
 public class MemberRepositoryCustomImpl implements MemberRepositoryCustom {
+    // Pageable 의 sort 로 받을 수 있는 필드
+    private static final Map<String, ComparableExpressionBase<?>> SORTABLE = Map.of(
+            "id", member.id,
+            "username", member.username,
+            "age", member.age,
+            "teamName", team.name);
+
     private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final ApplicationEventPublisher publisher;
+    private final MemberCountCache countCache;
+    private final MemberSearchQueryCache queryCache;
+    private final MemberSearchPredicates predicates;
+    // app.sharding.enabled=true 일 때만 있다
+    private final ObjectProvider<ShardedMemberSearch> shardedSearch;
+    private final MemberSearchIndex searchIndex;
+    private final MemberSearchResultCache resultCache;
+    // 빈 이름(queryExecutor)으로 주입된다
+    private final ExecutorService queryExecutor;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${app.stream.fetch-size:500}")
+    private int streamFetchSize;
+
+    // IN 절 한 번에 넣는 id 수. 2의 거듭제곱이면 마지막 청크 외에는 패딩이 없다
+    @Value("${app.multi-get.chunk-size:512}")
+    private int multiGetChunkSize;
 
     @Override
     public List<MemberTeamDto> searchByBuilder(MemberSearchCondition condition) {
-        BooleanBuilder builder = new BooleanBuilder();
-        if (hasText(condition.getUsername())) {
-            builder.and(member.username.eq(condition.getUsername()));
-        }
-        if (hasText(condition.getTeamName())) {
-            builder.and(team.name.eq(condition.getTeamName()));
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.search(condition);
         }
-        if (condition.getAgeGoe() != null) {
-            builder.and(member.age.goe(condition.getAgeGoe()));
+        // 조건 해석은 다른 검색 경로와 같은 MemberSearchPredicates (BooleanBuilder 로 합친다)
+        return queryFactory
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(predicates.where(condition))
+                .fetch();
+    }
+
+    @Override
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.search(condition);
         }
-        if (condition.getAgeLoe() != null) {
-            builder.and(member.age.loe(condition.getAgeLoe()));
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        // 인덱스는 커밋된 변경만 담으므로 읽기-쓰기 트랜잭션에서는 자기 미커밋 변경을 보도록 SQL 로 간다
+        if (searchIndex.isEnabled() && !inReadWriteTransaction()) {
+            List<MemberTeamDto> indexed = searchIndex.search(key);
+            if (indexed != null) {
+                return indexed;
+            }
         }
+        return resultCache.get(key, () -> searchFromDatabase(key, condition));
+    }
 
+    private List<MemberTeamDto> searchFromDatabase(MemberSearchKey key, MemberSearchCondition condition) {
+        if (queryCache.isEnabled() && key.isBasic()) {
+            return queryCache.fetch(key);
+        }
         return queryFactory
-                .select(Projections.constructor(
-                        MemberTeamDto.class,
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name)
-                )
+                .select(MemberTeamProjection.INSTANCE)
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(builder)
+                .where(predicates.where(condition))
                 .fetch();
     }
 
     @Override
-    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, List<MemberField> fields) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.searchFields(condition, fields);
+        }
+        JPAQuery<Tuple> query = queryFactory
+                .select(fields.stream().map(MemberField::expression).toArray(Expression[]::new))
+                .from(member);
+        // 팀 조건은 팀 id 로 바뀌거나 (캐시 미스면) 필요한 조인을 스스로 만든다
+        if (fields.stream().anyMatch(MemberField::teamJoin)) {
+            query.leftJoin(member.team, team);
+        }
+        List<Tuple> rows = query
+                .where(predicates.where(condition))
+                .orderBy(member.id.asc())
+                .fetch();
+
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (Tuple row : rows) {
+            Map<String, Object> values = new LinkedHashMap<>(fields.size() * 2);
+            for (MemberField field : fields) {
+                values.put(field.jsonName(), row.get(field.expression()));
+            }
+            result.add(values);
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<MemberTeamDto> stream(MemberSearchCondition condition) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.stream(condition, streamFetchSize);
+        }
+        return queryFactory
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(predicates.where(condition))
+                .orderBy(member.id.asc())
+                .setHint(HibernateHints.HINT_FETCH_SIZE, streamFetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .stream();
+    }
+
+    /**
+     * 영속성 컨텍스트 -> 인메모리 인덱스 -> IN 절 순으로 찾는다.
+     * 청크가 여럿이면 첫 청크를 제외한 나머지를 queryExecutor 에서 각자 읽기 전용 트랜잭션으로 동시에 조회한다.
+     * 호출자가 읽기-쓰기 트랜잭션이면 미커밋 변경이 보이도록 그 트랜잭션 안에서 차례로 조회한다.
+     */
+    @Override
+    @Transactional(readOnly = true, propagation = Propagation.SUPPORTS)
+    public List<MemberTeamDto> findMemberTeamDtosByIds(Collection<Long> ids) {
+        Set<Long> requested = new LinkedHashSet<>(ids);
+        requested.remove(null);
+        Map<Long, MemberTeamDto> found = new HashMap<>(requested.size() * 2);
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        // 읽기-쓰기 트랜잭션의 미커밋 변경은 그 트랜잭션의 커넥션에서만 보인다
+        boolean readWrite = inReadWriteTransaction();
+
+        List<Long> missing = new ArrayList<>(requested);
+        if (sharded == null) {
+            missing = fromPersistenceContext(missing, found);
+            // 인덱스는 커밋된 변경만 반영한다
+            if (searchIndex.isEnabled() && !missing.isEmpty() && !readWrite) {
+                Map<Long, MemberTeamDto> indexed = searchIndex.findByIds(missing);
+                if (indexed != null) {
+                    found.putAll(indexed);
+                    missing = List.of();
+                }
+            }
+        }
+
+        List<List<Long>> chunks = chunks(missing, multiGetChunkSize);
+        Function<List<Long>, List<MemberTeamDto>> fetch = sharded != null
+                ? chunk -> sharded.findByIds(padded(chunk))
+                : this::fetchByIds;
+        // 샤딩 모드는 청크마다 샤드로 fan-out 하므로 청크끼리는 차례로 보낸다 (같은 실행기에서 서로 기다리지 않도록)
+        if (chunks.size() > 1 && !readWrite && sharded == null) {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+            readOnly.setReadOnly(true);
+            List<CompletableFuture<List<MemberTeamDto>>> futures = chunks.subList(1, chunks.size()).stream()
+                    .map(chunk -> CompletableFuture.supplyAsync(() -> readOnly.execute(status -> fetch.apply(chunk)), queryExecutor))
+                    .toList();
+            try {
+                // 첫 청크는 호출 스레드가 (있으면 호출자 트랜잭션에서) 직접 조회한다
+                fetch.apply(chunks.get(0)).forEach(row -> found.put(row.memberId(), row));
+                futures.forEach(future -> future.join().forEach(row -> found.put(row.memberId(), row)));
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+        } else {
+            chunks.forEach(chunk -> fetch.apply(chunk).forEach(row -> found.put(row.memberId(), row)));
+        }
+
+        List<MemberTeamDto> result = new ArrayList<>(found.size());
+        for (Long id : requested) {
+            MemberTeamDto row = found.get(id);
+            if (row != null) {
+                result.add(row);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 이미 영속성 컨텍스트에 있는 회원은 (미flush 변경까지 포함해) 그대로 쓴다. 팀이 초기화 안 된 프록시면 DB 로 넘긴다.
+     */
+    private List<Long> fromPersistenceContext(List<Long> ids, Map<Long, MemberTeamDto> found) {
+        SessionImplementor session = em.unwrap(SessionImplementor.class);
+        PersistenceContext persistenceContext = session.getPersistenceContextInternal();
+        if (persistenceContext.getNumberOfManagedEntities() == 0) {
+            return ids;
+        }
+        EntityPersister persister = session.getFactory().getMappingMetamodel().getEntityDescriptor(Member.class);
+        List<Long> missing = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Object entity = persistenceContext.getEntity(session.generateEntityKey(id, persister));
+            if (entity instanceof Member managed && (managed.getTeam() == null || Hibernate.isInitialized(managed.getTeam()))) {
+                Team memberTeam = managed.getTeam();
+                found.put(id, new MemberTeamDto(managed.getId(), managed.getUsername(), managed.getAge(),
+                        memberTeam == null ? null : memberTeam.getId(),
+                        memberTeam == null ? null : memberTeam.getName()));
+            } else {
+                missing.add(id);
+            }
+        }
+        return missing;
+    }
+
+    private List<MemberTeamDto> fetchByIds(List<Long> ids) {
         return queryFactory
-                .select(Projections.constructor(
-                        MemberTeamDto.class,
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name)
-                )
+                .select(MemberTeamProjection.INSTANCE)
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(
-                        userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe())
-                )
+                .where(member.id.in(padded(ids)))
                 .fetch();
     }
 
+    private static boolean inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static List<List<Long>> chunks(List<Long> ids, int size) {
+        List<List<Long>> chunks = new ArrayList<>((ids.size() + size - 1) / size);
+        for (int from = 0; from < ids.size(); from += size) {
+            chunks.add(ids.subList(from, Math.min(from + size, ids.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * IN 절 파라미터 수를 2의 거듭제곱으로 맞춘다 (마지막 id 반복). 파라미터 수마다 SQL 이 달라지면
+     * Hibernate 쿼리 플랜 캐시와 DB 문장 캐시가 id 개수만큼 갈라지기 때문이다.
+     */
+    static List<Long> padded(List<Long> ids) {
+        int size = ids.size() <= 1 ? ids.size() : Integer.highestOneBit(ids.size() - 1) << 1;
+        if (size == ids.size()) {
+            return ids;
+        }
+        List<Long> padded = new ArrayList<>(size);
+        padded.addAll(ids);
+        Long last = ids.get(ids.size() - 1);
+        while (padded.size() < size) {
+            padded.add(last);
+        }
+        return padded;
+    }
+
     @Override
     public Page<MemberTeamDto> searchPageComplex(MemberSearchCondition condition, Pageable page) {
-        List<MemberTeamDto> content = queryFactory
-                .select(Projections.constructor(
-                        MemberTeamDto.class,
-                        member.id,
-                        member.username,
-                        member.age,
-                        team.id,
-                        team.name))
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.searchPage(condition, page);
+        }
+        List<MemberTeamDto> content = searchPageContent(condition, page);
+        return PageableExecutionUtils.getPage(content, page, () -> searchCount(condition));
+    }
+
+    @Override
+    public List<MemberTeamDto> searchPageContent(MemberSearchCondition condition, Pageable page) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.searchContent(condition, page.getSort(), page.getOffset(), page.getPageSize());
+        }
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        // 미리 렌더링한 쿼리는 기본 조건 + member.id 정렬만 처리한다
+        if (queryCache.isEnabled() && key.isBasic() && page.getSort().isUnsorted()) {
+            return queryCache.fetch(key, page.getOffset(), page.getPageSize());
+        }
+        return queryFactory
+                .select(MemberTeamProjection.INSTANCE)
                 .from(member)
                 .leftJoin(member.team, team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()))
+                .where(predicates.where(condition))
+                .orderBy(sortOrder(page.getSort()))
                 .offset(page.getOffset())
                 .limit(page.getPageSize())
                 .fetch();
+    }
 
+    @Override
+    public long searchCount(MemberSearchCondition condition) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.count(condition);
+        }
+        // to-one left join 은 건수에 영향이 없으므로 count 에서는 조인하지 않는다 (팀 조건은 암묵적 조인)
         JPAQuery<Long> countQuery = queryFactory
                 .select(member.count())
                 .from(member)
+                .where(predicates.where(condition));
+        return countCache.count(MemberSearchKey.of(condition), countQuery::fetchOne);
+    }
+
+    @Override
+    public Slice<MemberTeamDto> searchSliceNoCount(MemberSearchCondition condition, Pageable page) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        List<MemberTeamDto> content = sharded != null
+                ? sharded.searchContent(condition, page.getSort(), page.getOffset(), page.getPageSize() + 1)
+                : queryFactory
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
                 .leftJoin(member.team, team)
-                .where(userNameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageGoe(condition.getAgeGoe()),
-                        ageLoe(condition.getAgeLoe()));
-        return PageableExecutionUtils.getPage(content, page, countQuery::fetchOne);
-//        return new PageImpl<>(content, page, total);
+                .where(predicates.where(condition))
+                .orderBy(sortOrder(page.getSort()))
+                .offset(page.getOffset())
+                .limit(page.getPageSize() + 1)
+                .fetch();
+
+        boolean hasNext = content.size() > page.getPageSize();
+        return new SliceImpl<>(hasNext ? content.subList(0, page.getPageSize()) : content, page, hasNext);
+    }
+
+    @Override
+    public List<Member> findAllWithTeam(MemberSearchCondition condition) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            return sharded.findAllWithTeam(condition);
+        }
+        return queryFactory
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(predicates.where(condition))
+                .orderBy(member.id.asc())
+                .fetch();
+    }
+
+    @Override
+    public List<Member> findAllWithTeamInBatch(MemberSearchCondition condition) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            // 팀과 그 회원은 같은 샤드에 있으므로 샤드 안에서 fetch join 으로 함께 읽는다
+            return sharded.findAllWithTeam(condition);
+        }
+        List<Member> members = queryFactory
+                .selectFrom(member)
+                .where(predicates.where(condition))
+                .orderBy(member.id.asc())
+                .fetch();
+
+        // member.team 프록시의 id 는 초기화 없이 읽을 수 있다
+        List<Long> teamIds = members.stream()
+                .map(Member::getTeam)
+                .filter(Objects::nonNull)
+                .map(Team::getId)
+                .distinct()
+                .toList();
+        if (!teamIds.isEmpty()) {
+            // 같은 영속성 컨텍스트에 팀 엔티티가 로딩되면서 회원들이 가진 프록시가 초기화된다
+            queryFactory.selectFrom(team)
+                    .where(team.id.in(teamIds))
+                    .fetch();
+        }
+        return members;
+    }
+
+    @Override
+    public CursorSlice<MemberTeamDto> searchSlice(MemberSearchCondition condition, MemberCursor cursor, int size) {
+        boolean backward = cursor.getDirection() == MemberCursor.Direction.PREV;
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        List<MemberTeamDto> rows = sharded != null
+                ? sharded.searchAfter(condition, seek(cursor), seekSort(cursor.getOrder(), backward), size + 1)
+                : queryFactory
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(predicates.where(condition),
+                        seek(cursor))
+                .orderBy(seekOrder(cursor.getOrder(), backward))
+                .limit(size + 1)
+                .fetch();
+
+        // size + 1 건을 읽어 다음 건 존재 여부만 판단 (count 쿼리 없음)
+        boolean hasMore = rows.size() > size;
+        List<MemberTeamDto> content = new ArrayList<>(hasMore ? rows.subList(0, size) : rows);
+        if (backward) {
+            Collections.reverse(content);
+        }
+
+        boolean hasNext = backward || hasMore;
+        boolean hasPrev = backward ? hasMore : !cursor.isFirst();
+        if (content.isEmpty()) {
+            return new CursorSlice<>(content, size, false, false, null, null);
+        }
+        MemberCursor.Order order = cursor.getOrder();
+        return new CursorSlice<>(content, size, hasNext, hasPrev,
+                hasNext ? MemberCursor.next(order, content.get(content.size() - 1)).encode() : null,
+                hasPrev ? MemberCursor.prev(order, content.get(0)).encode() : null);
     }
 
-    private BooleanExpression userNameEq(String username) {
-        return isBlank(username) ? null : member.username.eq(username);
+    @Override
+    @Transactional
+    public long bulkAddAge(MemberSearchCondition condition, int delta) {
+        Predicate where = dmlWhere(condition);
+        return bulk(condition, factory -> factory
+                .update(member)
+                .set(member.age, member.age.add(delta))
+                .where(where)
+                .execute());
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return isBlank(teamName) ? null : member.team.name.eq(teamName);
+    @Override
+    @Transactional
+    public long bulkChangeTeam(MemberSearchCondition condition, Long teamId) {
+        if (shardedSearch.getIfAvailable() != null) {
+            throw new IllegalStateException("bulkChangeTeam is not supported when app.sharding.enabled=true: "
+                    + "changing team_id moves members to another shard");
+        }
+        Predicate where = dmlWhere(condition);
+        // Team.members 컬렉션은 건드리지 않고 FK 만 바꾼다. teamId 가 null 이면 팀에서 뺀다
+        JPAUpdateClause update = queryFactory.update(member);
+        if (teamId == null) {
+            update.setNull(member.team);
+        } else {
+            update.set(member.team, em.getReference(Team.class, teamId));
+        }
+        return bulk(condition, factory -> update.where(where).execute());
     }
 
-    private BooleanExpression ageGoe(Integer ageGoe) {
-        return ageGoe == null ? null : member.age.goe(ageGoe);
+    @Override
+    @Transactional
+    public long bulkDelete(MemberSearchCondition condition) {
+        Predicate where = dmlWhere(condition);
+        return bulk(condition, factory -> factory
+                .delete(member)
+                .where(where)
+                .execute());
+    }
+
+    @Override
+    @Transactional
+    public long bulkDeleteAll() {
+        return bulk(new MemberSearchCondition(), factory -> factory.delete(member).execute());
+    }
+
+    /**
+     * 빈 조건은 where 절이 없어 테이블 전체에 적용되므로 받지 않는다. 전체 삭제는 bulkDeleteAll 로 명시한다.
+     * 샤딩 모드에서는 기본 DB 기준인 팀 id 캐시를 쓰지 않는다.
+     */
+    private Predicate dmlWhere(MemberSearchCondition condition) {
+        Predicate where = shardedSearch.getIfAvailable() != null
+                ? predicates.forDmlByTeamName(condition)
+                : predicates.forDml(condition);
+        if (where instanceof BooleanBuilder builder && !builder.hasValue()) {
+            throw new IllegalArgumentException("벌크 연산에는 검색 조건이 하나 이상 필요하다");
+        }
+        return where;
     }
 
-    private BooleanExpression ageLoe(Integer ageLoe) {
-        return ageLoe == null ? null : member.age.loe(ageLoe);
+    // 샤딩 모드면 condition 의 회원이 있을 수 있는 샤드마다 실행한다
+    private long bulk(MemberSearchCondition condition, Function<JPAQueryFactory, Long> statement) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded != null) {
+            long affected = sharded.execute(condition, statement);
+            publisher.publishEvent(EntityChangedEvent.bulk(Member.class));
+            return affected;
+        }
+        // 아직 flush 안 된 변경이 벌크 문장 뒤에 덮어쓰지 않도록 먼저 반영한다
+        em.flush();
+        long affected = statement.apply(queryFactory);
+        // 벌크 문장은 영속성 컨텍스트를 거치지 않으므로 남아 있는 엔티티는 모두 오래된 값이다
+        em.clear();
+        publisher.publishEvent(EntityChangedEvent.bulk(Member.class));
+        return affected;
+    }
+
+    private BooleanExpression seek(MemberCursor cursor) {
+        if (cursor.isFirst()) {
+            return null;
+        }
+        boolean backward = cursor.getDirection() == MemberCursor.Direction.PREV;
+        Long id = cursor.getId();
+        BooleanExpression idSeek = backward ? member.id.lt(id) : member.id.gt(id);
+        if (cursor.getOrder() == MemberCursor.Order.ID) {
+            return idSeek;
+        }
+        // (age, id) > (:age, :id) 를 풀어 쓴 형태
+        Integer age = cursor.getAge();
+        return (backward ? member.age.lt(age) : member.age.gt(age))
+                .or(member.age.eq(age).and(idSeek));
+    }
+
+    private OrderSpecifier<?>[] seekOrder(MemberCursor.Order order, boolean backward) {
+        if (order == MemberCursor.Order.ID) {
+            return new OrderSpecifier<?>[]{backward ? member.id.desc() : member.id.asc()};
+        }
+        return backward
+                ? new OrderSpecifier<?>[]{member.age.desc(), member.id.desc()}
+                : new OrderSpecifier<?>[]{member.age.asc(), member.id.asc()};
+    }
+
+    // 샤딩 모드에서 seekOrder 와 같은 순서 (샤드 병합은 Sort 로 정렬과 비교를 함께 만든다)
+    private static Sort seekSort(MemberCursor.Order order, boolean backward) {
+        Sort.Direction direction = backward ? Sort.Direction.DESC : Sort.Direction.ASC;
+        return order == MemberCursor.Order.ID ? Sort.by(direction, "id") : Sort.by(direction, "age", "id");
+    }
+
+    /**
+     * pageable 의 정렬을 허용된 필드만 OrderSpecifier 로 바꾼다. 페이지 경계가 흔들리지 않도록 항상 member.id 를 마지막에 붙인다.
+     */
+    private OrderSpecifier<?>[] sortOrder(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            ComparableExpressionBase<?> path = SORTABLE.get(order.getProperty());
+            if (path == null) {
+                throw new IllegalArgumentException("정렬할 수 없는 필드: " + order.getProperty() + " (허용: " + SORTABLE.keySet() + ")");
+            }
+            orders.add(order.isAscending() ? path.asc() : path.desc());
+        }
+        if (sort.getOrderFor("id") == null) {
+            orders.add(member.id.asc());
+        }
+        return orders.toArray(OrderSpecifier<?>[]::new);
     }
 }
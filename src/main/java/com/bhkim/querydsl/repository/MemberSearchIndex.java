@@ -0,0 +1,669 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import com.querydsl.jpa.impl.JPAQuery;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * search(condition) 를 DB 없이 처리하는 컬럼형 인메모리 읽기 모델 (app.search-index.enabled=true 일 때만).
+ * 회원을 id 순으로 한 행씩 두고 age 는 int[], username / 팀은 사전 인코딩한 int[] 코드로 저장한다.
+ * username 과 팀마다 그 값을 가진 행 번호를 오름차순 int[] 로 두어, 조건이 있으면 그 목록만 훑고 나이는 int 컬럼으로 거른다.
+ * 메모리는 행 수 + 값 종류 수에 비례한다 (팀 수 * 행 수 비트맵이나 나이 범위 크기의 배열을 만들지 않는다).
+ * <p>
+ * Member/Team 변경이 커밋되면 세대 번호를 올리고 바뀐 id 를 모아 두었다가, 백그라운드에서 그 회원 행만 다시 읽어 반영한다.
+ * 팀이 바뀌면 팀 사전의 이름만 바꾼다. 벌크 연산처럼 바뀐 행을 모르면 전체를 다시 만든다.
+ * 인덱스가 최신 세대가 아니면 search 는 null 을 돌려주고 호출 측은 SQL 경로로 처리한다 (커밋된 변경을 놓치지 않음).
+ */
+@Slf4j
+@Component
+public class MemberSearchIndex implements MeterBinder {
+    // 한 번에 반영할 회원이 이보다 많으면 행 단위로 다시 읽기보다 전체를 다시 만든다
+    private static final int MAX_DELTA = 10_000;
+    private static final int RELOAD_CHUNK = 512;
+
+    private final EntityManager em;
+    private final MemberSearchQueryCache queryCache;
+    private final boolean enabled;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    // 커밋됐지만 아직 인덱스에 반영하지 않은 변경
+    private final Set<Long> dirtyMembers = ConcurrentHashMap.newKeySet();
+    private final Set<Long> dirtyTeams = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean fullRebuildRequested = new AtomicBoolean();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stale = new LongAdder();
+    private final LongAdder fullRebuilds = new LongAdder();
+    private final LongAdder deltaRefreshes = new LongAdder();
+    private final ExecutorService refreshExecutor;
+    private volatile Index index = new Index(-1);
+
+    public MemberSearchIndex(EntityManager em, MemberSearchQueryCache queryCache,
+                             @Value("${app.search-index.enabled:false}") boolean enabled) {
+        this.em = em;
+        this.queryCache = queryCache;
+        this.enabled = enabled;
+        this.refreshExecutor = enabled
+                ? Executors.newSingleThreadExecutor(Thread.ofPlatform().name("member-search-index").daemon(true).factory())
+                : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 마지막으로 커밋된 변경까지 반영된 인덱스인지.
+     */
+    public boolean isCurrent() {
+        return index.generation == generation.get();
+    }
+
+    /**
+     * 인덱스가 최신이 아니거나 기본 조건 외의 조건이 있으면 null. 결과는 member id 오름차순이다.
+     */
+    public List<MemberTeamDto> search(MemberSearchKey key) {
+        if (!key.isBasic()) {
+            return null;
+        }
+        Index current = index;
+        if (current.generation != generation.get()) {
+            stale.increment();
+            return null;
+        }
+        hits.increment();
+        return current.search(key);
+    }
+
+    /**
+     * id 로 찾은 행 (없는 id 는 빠진다). 인덱스가 최신이 아니면 null.
+     */
+    public Map<Long, MemberTeamDto> findByIds(Collection<Long> memberIds) {
+        Index current = index;
+        if (!enabled) {
+            return null;
+        }
+        if (current.generation != generation.get()) {
+            stale.increment();
+            return null;
+        }
+        hits.increment();
+        return current.find(memberIds);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (enabled) {
+            fullRebuildRequested.set(true);
+            generation.incrementAndGet();
+            scheduleRefresh();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void afterCommit(EntityChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        // 바뀐 id 를 먼저 남기고 세대를 올린다. 반영하는 쪽은 세대를 읽은 다음 id 를 꺼내므로 그 세대까지의 변경을 놓치지 않는다
+        if (event.id() == null) {
+            fullRebuildRequested.set(true);
+        } else if (Member.class.isAssignableFrom(event.entityType())) {
+            dirtyMembers.add((Long) event.id());
+        } else {
+            dirtyTeams.add((Long) event.id());
+        }
+        generation.incrementAndGet();
+        scheduleRefresh();
+    }
+
+    /**
+     * 16 가지 조건 조합을 인덱스에서 뽑은 값으로 SQL 경로(MemberSearchQueryCache)와 비교해 결과가 다른 조건을 돌려준다.
+     * 비교 도중 데이터가 바뀌면 불일치로 보일 수 있으므로 쓰기가 없는 시점에 호출한다.
+     */
+    public List<MemberSearchKey> verify() {
+        Index current = index;
+        List<MemberSearchKey> mismatches = new ArrayList<>();
+        for (int shape = 0; shape < MemberSearchKey.SHAPE_COUNT; shape++) {
+            MemberSearchKey key = current.sampleKey(shape);
+            List<MemberTeamDto> expected = queryCache.fetch(key);
+            List<MemberTeamDto> actual = current.search(key);
+            if (!expected.equals(actual)) {
+                log.warn("search index mismatch key={} sql={} index={}", key, expected.size(), actual.size());
+                mismatches.add(key);
+            }
+        }
+        return mismatches;
+    }
+
+    private void scheduleRefresh() {
+        if (refreshing.compareAndSet(false, true)) {
+            refreshExecutor.execute(this::refresh);
+        }
+    }
+
+    private void refresh() {
+        boolean failed = false;
+        try {
+            // 반영하는 동안 새 커밋이 들어오면 한 번 더 돈다
+            long target;
+            do {
+                target = generation.get();
+                if (fullRebuildRequested.getAndSet(false)) {
+                    rebuild(target);
+                    continue;
+                }
+                Set<Long> members = drain(dirtyMembers);
+                Set<Long> teams = drain(dirtyTeams);
+                if (members.size() > MAX_DELTA || !index.apply(members, reload(members), reloadTeams(teams), target)) {
+                    rebuild(target);
+                } else {
+                    deltaRefreshes.increment();
+                }
+            } while (target != generation.get());
+            log.debug("search index refreshed generation={} rows={}", target, index.size());
+        } catch (RuntimeException e) {
+            failed = true;
+            // 꺼낸 id 를 잃었으므로 다음에는 전체를 다시 만든다
+            fullRebuildRequested.set(true);
+            log.warn("search index refresh failed, search falls back to SQL", e);
+        } finally {
+            refreshing.set(false);
+        }
+        // refreshing 을 내리기 직전에 들어온 커밋은 여기서 다시 잡는다 (실패했으면 다음 커밋 때 다시 시도)
+        if (!failed && !isCurrent() && !refreshExecutor.isShutdown()) {
+            scheduleRefresh();
+        }
+    }
+
+    private void rebuild(long target) {
+        // 모아 둔 id 는 지금부터 읽을 전체 데이터에 이미 들어 있다 (id 는 커밋 뒤에 쌓이므로)
+        dirtyMembers.clear();
+        dirtyTeams.clear();
+        index = Index.build(query().orderBy(member.id.asc()).fetch(), target);
+        fullRebuilds.increment();
+    }
+
+    private List<MemberTeamDto> reload(Collection<Long> memberIds) {
+        List<Long> ids = new ArrayList<>(memberIds);
+        List<MemberTeamDto> rows = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += RELOAD_CHUNK) {
+            rows.addAll(query().where(member.id.in(ids.subList(from, Math.min(from + RELOAD_CHUNK, ids.size())))).fetch());
+        }
+        return rows;
+    }
+
+    // 팀 id -> 지금 이름 (그 사이 삭제된 팀은 빠진다)
+    private Map<Long, String> reloadTeams(Collection<Long> teamIds) {
+        List<Long> ids = new ArrayList<>(teamIds);
+        Map<Long, String> names = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += RELOAD_CHUNK) {
+            new JPAQuery<Void>(em)
+                    .select(team.id, team.name)
+                    .from(team)
+                    .where(team.id.in(ids.subList(from, Math.min(from + RELOAD_CHUNK, ids.size()))))
+                    .fetch()
+                    .forEach(row -> names.put(row.get(team.id), row.get(team.name)));
+        }
+        return names;
+    }
+
+    private JPAQuery<MemberTeamDto> query() {
+        return new JPAQuery<Void>(em)
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+    }
+
+    private static Set<Long> drain(Set<Long> dirty) {
+        Set<Long> drained = new HashSet<>();
+        for (Iterator<Long> it = dirty.iterator(); it.hasNext(); ) {
+            drained.add(it.next());
+            it.remove();
+        }
+        return drained;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.index", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.index", stale, LongAdder::sum)
+                .tag("result", "stale")
+                .register(registry);
+        FunctionCounter.builder("member.search.index.refresh", fullRebuilds, LongAdder::sum)
+                .tag("type", "full")
+                .register(registry);
+        FunctionCounter.builder("member.search.index.refresh", deltaRefreshes, LongAdder::sum)
+                .tag("type", "delta")
+                .register(registry);
+        Gauge.builder("member.search.index.rows", this, searchIndex -> searchIndex.index.size())
+                .register(registry);
+    }
+
+    /**
+     * 컬럼 묶음. 행 번호(slot)는 member id 오름차순으로 붙인다. 지운 행은 live 에서 빠진 채 남았다가 전체를 다시 만들 때 정리된다.
+     * age 는 int[], username 과 팀은 사전 코드 int[] 로 두고, 사전 코드마다 그 값을 가진 행 번호를 오름차순 int[] 로 둔다.
+     * 메모리는 값 종류 수와 상관없이 행 수에 비례한다 (행당 id 8 + 컬럼 4 * 3 + 행 번호 목록 4 * 2 바이트, 문자열은 사전에 한 번).
+     * 팀 이름은 팀 사전에만 있으므로 팀 이름이 바뀌어도 회원 행은 다시 읽지 않는다.
+     * 갱신은 refresh 스레드 하나만 하고, 검색은 읽기 락으로 갱신과 겹치지 않는다.
+     */
+    private static final class Index {
+        private static final int NONE = -1;
+        // 지운 행이 절반을 넘으면 (이 크기 이상일 때) 델타 대신 전체를 다시 만들어 정리한다
+        private static final int COMPACT_MIN_ROWS = 1024;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private long[] memberIds = new long[16];
+        private int[] ages = new int[16];
+        private int[] usernameCodes = new int[16];
+        private int[] teamCodes = new int[16];
+        private int size;
+        private int dead;
+        private final BitSet live = new BitSet();
+        private final Dictionary<String> usernames = new Dictionary<>();
+        private final Dictionary<Long> teams = new Dictionary<>();
+        // 팀 사전 코드 -> 이름, 이름 -> 코드 (같은 이름의 팀이 여럿일 수 있다)
+        private final List<String> teamNames = new ArrayList<>();
+        private final Map<String, Set<Integer>> teamCodesByName = new HashMap<>();
+        private volatile long generation;
+
+        Index(long generation) {
+            this.generation = generation;
+        }
+
+        // id 오름차순으로 받아 끝에 붙이기만 한다
+        static Index build(List<MemberTeamDto> rows, long generation) {
+            Index index = new Index(generation);
+            rows.forEach(index::append);
+            return index;
+        }
+
+        /**
+         * ids 의 행을 다시 읽은 값으로 바꾸고 (다시 읽었는데 없으면 삭제된 회원이다) 바뀐 팀 이름을 반영한다.
+         * 행 번호 순서를 지킬 수 없는 새 id (마지막 id 보다 작은 id) 가 있거나 지운 행이 너무 많으면 아무것도 바꾸지 않고 false.
+         */
+        boolean apply(Set<Long> ids, List<MemberTeamDto> reloaded, Map<Long, String> renamedTeams, long generation) {
+            lock.writeLock().lock();
+            try {
+                Map<Long, MemberTeamDto> byId = new HashMap<>(reloaded.size() * 2);
+                long last = size == 0 ? Long.MIN_VALUE : memberIds[size - 1];
+                for (MemberTeamDto row : reloaded) {
+                    if (row.memberId() < last && Arrays.binarySearch(memberIds, 0, size, row.memberId()) < 0) {
+                        return false;
+                    }
+                    byId.put(row.memberId(), row);
+                }
+                int deletions = 0;
+                for (Long id : ids) {
+                    if (!byId.containsKey(id) && slotOf(id) != NONE) {
+                        deletions++;
+                    }
+                }
+                if (size >= COMPACT_MIN_ROWS && (dead + deletions) * 2 > size) {
+                    return false;
+                }
+
+                for (Long id : ids) {
+                    int slot = byId.containsKey(id) ? NONE : slotOf(id);
+                    if (slot != NONE) {
+                        clear(slot);
+                        live.clear(slot);
+                        dead++;
+                    }
+                }
+                byId.values().stream().sorted(Comparator.comparingLong(MemberTeamDto::memberId)).forEach(row -> {
+                    int slot = Arrays.binarySearch(memberIds, 0, size, row.memberId());
+                    if (slot < 0) {
+                        append(row);
+                        return;
+                    }
+                    if (live.get(slot)) {
+                        clear(slot);
+                    } else {
+                        live.set(slot);
+                        dead--;
+                    }
+                    set(slot, row);
+                });
+                renamedTeams.forEach((teamId, name) -> {
+                    int code = teams.find(teamId);
+                    if (code != NONE) {
+                        nameTeam(code, name);
+                    }
+                });
+                this.generation = generation;
+                return true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return size - dead;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        Map<Long, MemberTeamDto> find(Collection<Long> memberIds) {
+            Map<Long, MemberTeamDto> found = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                for (Long memberId : memberIds) {
+                    int slot = slotOf(memberId);
+                    if (slot != NONE) {
+                        found.put(memberId, row(slot));
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return found;
+        }
+
+        /**
+         * username / 팀 이름 조건이 있으면 그 값의 행 번호 목록 중 짧은 쪽만 훑고, 없으면 살아 있는 행을 모두 훑는다.
+         * 나머지 조건은 컬럼 값(사전 코드, int 나이)으로 거른다.
+         */
+        List<MemberTeamDto> search(MemberSearchKey key) {
+            lock.readLock().lock();
+            try {
+                int usernameCode = NONE;
+                int[] candidates = null;
+                if (key.username() != null) {
+                    usernameCode = usernames.find(key.username());
+                    if (usernameCode == NONE) {
+                        return new ArrayList<>();
+                    }
+                    candidates = usernames.slots(usernameCode).toArray();
+                }
+                if (key.teamName() != null) {
+                    Set<Integer> codes = teamCodesByName.get(key.teamName());
+                    if (codes == null) {
+                        return new ArrayList<>();
+                    }
+                    int[] teamSlots = teamSlots(codes);
+                    candidates = candidates == null || teamSlots.length < candidates.length ? teamSlots : candidates;
+                }
+
+                List<MemberTeamDto> result = new ArrayList<>();
+                if (candidates != null) {
+                    for (int slot : candidates) {
+                        if (matches(key, usernameCode, slot)) {
+                            result.add(row(slot));
+                        }
+                    }
+                } else {
+                    for (int slot = live.nextSetBit(0); slot >= 0; slot = live.nextSetBit(slot + 1)) {
+                        if (matches(key, usernameCode, slot)) {
+                            result.add(row(slot));
+                        }
+                    }
+                }
+                return result;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private boolean matches(MemberSearchKey key, int usernameCode, int slot) {
+            int teamCode = teamCodes[slot];
+            return (key.username() == null || usernameCodes[slot] == usernameCode)
+                    && (key.teamName() == null || teamCode != NONE && key.teamName().equals(teamNames.get(teamCode)))
+                    && (key.ageGoe() == null || ages[slot] >= key.ageGoe())
+                    && (key.ageLoe() == null || ages[slot] <= key.ageLoe());
+        }
+
+        private int[] teamSlots(Set<Integer> codes) {
+            if (codes.size() == 1) {
+                return teams.slots(codes.iterator().next()).toArray();
+            }
+            int[] merged = codes.stream().map(teams::slots).flatMapToInt(SlotList::stream).toArray();
+            Arrays.sort(merged);
+            return merged;
+        }
+
+        private MemberTeamDto row(int slot) {
+            int usernameCode = usernameCodes[slot];
+            int teamCode = teamCodes[slot];
+            return new MemberTeamDto(
+                    memberIds[slot],
+                    usernameCode == NONE ? null : usernames.value(usernameCode),
+                    ages[slot],
+                    teamCode == NONE ? null : teams.value(teamCode),
+                    teamCode == NONE ? null : teamNames.get(teamCode));
+        }
+
+        private int slotOf(long memberId) {
+            int slot = Arrays.binarySearch(memberIds, 0, size, memberId);
+            return slot >= 0 && live.get(slot) ? slot : NONE;
+        }
+
+        private void append(MemberTeamDto row) {
+            if (size == memberIds.length) {
+                int capacity = size * 2;
+                memberIds = Arrays.copyOf(memberIds, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                usernameCodes = Arrays.copyOf(usernameCodes, capacity);
+                teamCodes = Arrays.copyOf(teamCodes, capacity);
+            }
+            int slot = size++;
+            live.set(slot);
+            set(slot, row);
+        }
+
+        private void set(int slot, MemberTeamDto row) {
+            memberIds[slot] = row.memberId();
+            ages[slot] = row.age();
+            usernameCodes[slot] = row.username() == null ? NONE : usernames.add(row.username(), slot);
+            if (row.teamId() == null) {
+                teamCodes[slot] = NONE;
+                return;
+            }
+            int teamCode = teams.add(row.teamId(), slot);
+            teamCodes[slot] = teamCode;
+            nameTeam(teamCode, row.teamName());
+        }
+
+        // 행을 사전의 행 번호 목록에서 뺀다. 회원이 없어진 팀은 이름 색인에서도 뺀다
+        private void clear(int slot) {
+            if (usernameCodes[slot] != NONE) {
+                usernames.remove(usernameCodes[slot], slot);
+            }
+            int teamCode = teamCodes[slot];
+            if (teamCode != NONE && teams.remove(teamCode, slot)) {
+                nameTeam(teamCode, null);
+            }
+        }
+
+        private void nameTeam(int teamCode, String name) {
+            while (teamNames.size() <= teamCode) {
+                teamNames.add(null);
+            }
+            String old = teamNames.set(teamCode, name);
+            if (Objects.equals(old, name)) {
+                return;
+            }
+            if (old != null) {
+                Set<Integer> codes = teamCodesByName.get(old);
+                codes.remove(teamCode);
+                if (codes.isEmpty()) {
+                    teamCodesByName.remove(old);
+                }
+            }
+            if (name != null) {
+                teamCodesByName.computeIfAbsent(name, n -> new HashSet<>()).add(teamCode);
+            }
+        }
+
+        /**
+         * 검증용 조건. 가운데 행의 값을 써서 결과가 비지 않는 조합을 만든다.
+         */
+        MemberSearchKey sampleKey(int shape) {
+            lock.readLock().lock();
+            try {
+                int mid = live.nextSetBit(size / 2);
+                mid = mid >= 0 ? mid : live.previousSetBit(size / 2);
+                String username = mid < 0 || usernameCodes[mid] == NONE ? "member1" : usernames.value(usernameCodes[mid]);
+                String teamName = teamCodesByName.isEmpty() ? "teamA" : teamCodesByName.keySet().iterator().next();
+                int age = mid < 0 ? 10 : ages[mid];
+                return new MemberSearchKey(
+                        (shape & MemberSearchKey.USERNAME) != 0 ? username : null,
+                        (shape & MemberSearchKey.TEAM_NAME) != 0 ? teamName : null,
+                        (shape & MemberSearchKey.AGE_GOE) != 0 ? age - 5 : null,
+                        (shape & MemberSearchKey.AGE_LOE) != 0 ? age + 5 : null);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * 값 <-> int 코드 사전과 코드별 행 번호 목록. 그 값을 가진 행이 없어지면 코드를 반납해 다음 새 값이 쓴다.
+     */
+    private static final class Dictionary<V> {
+        private final Map<V, Integer> codes = new HashMap<>();
+        private final List<V> values = new ArrayList<>();
+        private final List<SlotList> slots = new ArrayList<>();
+        private final Deque<Integer> freeCodes = new ArrayDeque<>();
+
+        int find(V value) {
+            Integer code = codes.get(value);
+            return code == null ? Index.NONE : code;
+        }
+
+        V value(int code) {
+            return values.get(code);
+        }
+
+        SlotList slots(int code) {
+            return slots.get(code);
+        }
+
+        // slot 을 value 의 행 목록에 넣고 value 의 코드를 돌려준다
+        int add(V value, int slot) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (freeCodes.isEmpty()) {
+                    code = values.size();
+                    values.add(value);
+                    slots.add(new SlotList());
+                } else {
+                    code = freeCodes.pop();
+                    values.set(code, value);
+                }
+                codes.put(value, code);
+            }
+            slots.get(code).add(slot);
+            return code;
+        }
+
+        // slot 을 빼고, 그 값을 가진 행이 더 없어 코드를 반납했으면 true
+        boolean remove(int code, int slot) {
+            SlotList list = slots.get(code);
+            list.remove(slot);
+            if (list.size() > 0) {
+                return false;
+            }
+            codes.remove(values.set(code, null));
+            freeCodes.push(code);
+            return true;
+        }
+    }
+
+    /**
+     * 오름차순 행 번호 목록. 전체를 다시 만들 때나 새 회원은 id 순서로 들어오므로 대부분 끝에 붙인다.
+     */
+    private static final class SlotList {
+        private int[] slots = new int[4];
+        private int size;
+
+        void add(int slot) {
+            int at = size == 0 || slots[size - 1] < slot ? size : Arrays.binarySearch(slots, 0, size, slot);
+            if (at < 0) {
+                at = -at - 1;
+            } else if (at < size) {
+                return;
+            }
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            slots[at] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            int at = Arrays.binarySearch(slots, 0, size, slot);
+            if (at >= 0) {
+                System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+                size--;
+            }
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(slots, size);
+        }
+
+        IntStream stream() {
+            return Arrays.stream(slots, 0, size);
+        }
+    }
+}
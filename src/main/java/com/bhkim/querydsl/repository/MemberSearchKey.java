@@ -0,0 +1,70 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+
+import java.util.List;
+
+import static org.springframework.util.StringUtils.hasText;
+
+/**
+ * 캐시 키로 쓰기 위해 공백/빈 문자열을 null 로 정규화한 검색 조건.
+ * 값은 다듬지 않는다 (where 절에 바인딩되는 값과 같아야 하므로).
+ * teamNames 는 순서와 중복이 결과에 영향이 없으므로 정렬해 같은 키가 되게 한다.
+ */
+public record MemberSearchKey(String username, String teamName, Integer ageGoe, Integer ageLoe,
+                              List<String> teamNames, String usernamePrefix, String usernameContains) {
+
+    public static final int USERNAME = 1;
+    public static final int TEAM_NAME = 1 << 1;
+    public static final int AGE_GOE = 1 << 2;
+    public static final int AGE_LOE = 1 << 3;
+    public static final int SHAPE_COUNT = 1 << 4;
+
+    public MemberSearchKey(String username, String teamName, Integer ageGoe, Integer ageLoe) {
+        this(username, teamName, ageGoe, ageLoe, null, null, null);
+    }
+
+    public static MemberSearchKey of(MemberSearchCondition condition) {
+        return new MemberSearchKey(
+                normalize(condition.getUsername()),
+                normalize(condition.getTeamName()),
+                condition.getAgeGoe(),
+                condition.getAgeLoe(),
+                normalize(condition.getTeamNames()),
+                normalize(condition.getUsernamePrefix()),
+                normalize(condition.getUsernameContains()));
+    }
+
+    /**
+     * 어떤 기본 조건(username, teamName, ageGoe, ageLoe)이 존재하는지만 나타내는 비트마스크 (0 ~ 15).
+     */
+    public int shape() {
+        return (username != null ? USERNAME : 0)
+                | (teamName != null ? TEAM_NAME : 0)
+                | (ageGoe != null ? AGE_GOE : 0)
+                | (ageLoe != null ? AGE_LOE : 0);
+    }
+
+    /**
+     * 기본 조건만 있는지. 미리 렌더링한 쿼리와 인메모리 인덱스는 이 경우만 처리한다.
+     */
+    public boolean isBasic() {
+        return teamNames == null && usernamePrefix == null && usernameContains == null;
+    }
+
+    private static String normalize(String value) {
+        return hasText(value) ? value : null;
+    }
+
+    private static List<String> normalize(List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        List<String> names = values.stream()
+                .filter(value -> hasText(value))
+                .distinct()
+                .sorted()
+                .toList();
+        return names.isEmpty() ? null : names;
+    }
+}
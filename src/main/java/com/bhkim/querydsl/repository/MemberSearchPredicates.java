@@ -0,0 +1,128 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.JPAExpressions;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * MemberSearchCondition -> where 절. 검색 / 통계 / 벌크 연산이 같은 조건 해석을 쓰도록 한 곳에 둔다.
+ */
+@Component
+@RequiredArgsConstructor
+public class MemberSearchPredicates {
+    private final TeamNameCache teamNameCache;
+
+    /**
+     * select / count 용 where 절.
+     */
+    public Predicate where(MemberSearchCondition condition) {
+        return conditions(MemberSearchKey.of(condition), false);
+    }
+
+    /**
+     * update / delete 용 where 절. 조인 없이 팀 id 나 서브쿼리로 팀 조건을 건다.
+     */
+    public Predicate forDml(MemberSearchCondition condition) {
+        return conditions(MemberSearchKey.of(condition), true);
+    }
+
+    /**
+     * 팀 id 캐시를 거치지 않고 팀 이름으로 거는 select 용 where 절. 캐시와 다른 DB (샤드)를 조회할 때 쓴다.
+     */
+    public Predicate whereByTeamName(MemberSearchCondition condition) {
+        return conditions(MemberSearchKey.of(condition), false, false);
+    }
+
+    /**
+     * 팀 id 캐시를 거치지 않는 update / delete 용 where 절. 샤드에 벌크 연산을 보낼 때 쓴다.
+     */
+    public Predicate forDmlByTeamName(MemberSearchCondition condition) {
+        return conditions(MemberSearchKey.of(condition), true, false);
+    }
+
+    /**
+     * 정규화한 조건을 하나의 where 절로 합친다. dml 이면 조인 없이 (update / delete 용) 팀 조건을 만든다.
+     */
+    private BooleanBuilder conditions(MemberSearchKey key, boolean dml) {
+        return conditions(key, dml, true);
+    }
+
+    private BooleanBuilder conditions(MemberSearchKey key, boolean dml, boolean resolveTeamIds) {
+        return new BooleanBuilder()
+                .and(userNameEq(key.username()))
+                .and(usernameStartsWith(key.usernamePrefix()))
+                .and(usernameContains(key.usernameContains()))
+                .and(teamNameEq(key.teamName(), dml, resolveTeamIds))
+                .and(teamNamesIn(key.teamNames(), dml, resolveTeamIds))
+                .and(ageGoe(key.ageGoe()))
+                .and(ageLoe(key.ageLoe()));
+    }
+
+    private BooleanExpression userNameEq(String username) {
+        return username == null ? null : member.username.eq(username);
+    }
+
+    private BooleanExpression usernameStartsWith(String prefix) {
+        if (prefix == null) {
+            return null;
+        }
+        // LIKE 'prefix%' 만으로는 바인딩 값이라 인덱스 범위 검색을 못 하는 DB 가 있어 같은 범위를 >= / < 로도 건다
+        BooleanExpression like = member.username.startsWith(prefix);
+        char last = prefix.charAt(prefix.length() - 1);
+        if (last == Character.MAX_VALUE) {
+            return member.username.goe(prefix).and(like);
+        }
+        String upperBound = prefix.substring(0, prefix.length() - 1) + (char) (last + 1);
+        return member.username.goe(prefix).and(member.username.lt(upperBound)).and(like);
+    }
+
+    private BooleanExpression usernameContains(String keyword) {
+        return keyword == null ? null : member.username.contains(keyword);
+    }
+
+    private BooleanExpression teamNameEq(String teamName, boolean dml, boolean resolveTeamIds) {
+        return teamName == null ? null : teamNamesIn(List.of(teamName), dml, resolveTeamIds);
+    }
+
+    private BooleanExpression teamNamesIn(List<String> teamNames, boolean dml, boolean resolveTeamIds) {
+        if (teamNames == null) {
+            return null;
+        }
+        if (resolveTeamIds) {
+            // 팀 id 를 모두 알면 team 조인 없이 member.team_id 로 비교한다
+            // 캐시에 없는 이름은 한 번의 IN 쿼리로 함께 찾는다
+            Map<String, Long> resolved = teamNameCache.findIds(teamNames);
+            if (resolved.keySet().containsAll(teamNames)) {
+                List<Long> teamIds = teamNames.stream().map(resolved::get).distinct().toList();
+                return teamIds.size() == 1 ? member.team.id.eq(teamIds.get(0)) : member.team.id.in(teamIds);
+            }
+        }
+        // update / delete 문에는 조인을 쓸 수 없으므로 서브쿼리로 비교한다
+        return dml
+                ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(nameIn(team.name, teamNames)))
+                : nameIn(member.team.name, teamNames);
+    }
+
+    private BooleanExpression nameIn(StringPath name, List<String> teamNames) {
+        return teamNames.size() == 1 ? name.eq(teamNames.get(0)) : name.in(teamNames);
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe == null ? null : member.age.goe(ageGoe);
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe == null ? null : member.age.loe(ageLoe);
+    }
+}
@@ -0,0 +1,146 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.admission.QueryDeadline;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAProvider;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAUtil;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * 조건 4개의 존재 여부 조합(16가지, 팀 조건이 id 로 풀린 경우 포함 32가지)별로 JPQL 을 한 번만 렌더링해 두고, 호출마다 파라미터만 바인딩한다.
+ * 같은 JPQL 문자열이 반복되므로 Hibernate 의 HQL 해석 캐시도 그대로 적중한다.
+ */
+@Component
+public class MemberSearchQueryCache implements MeterBinder {
+    private static final Param<String> USERNAME = new Param<>(String.class, "username");
+    private static final Param<String> TEAM_NAME = new Param<>(String.class, "teamName");
+    private static final Param<Long> TEAM_ID = new Param<>(Long.class, "teamId");
+    private static final Param<Integer> AGE_GOE = new Param<>(Integer.class, "ageGoe");
+    private static final Param<Integer> AGE_LOE = new Param<>(Integer.class, "ageLoe");
+
+    // 팀 이름 조건이 팀 id 로 풀린 경우를 별도 조합으로 다룬다
+    private static final int TEAM_ID_RESOLVED = MemberSearchKey.SHAPE_COUNT;
+
+    private final EntityManager em;
+    private final TeamNameCache teamNameCache;
+    private final boolean enabled;
+    private final AtomicReferenceArray<CompiledQuery> compiled = new AtomicReferenceArray<>(MemberSearchKey.SHAPE_COUNT * 2);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchQueryCache(EntityManager em, TeamNameCache teamNameCache,
+                                  @Value("${app.query-cache.enabled:true}") boolean enabled) {
+        this.em = em;
+        this.teamNameCache = teamNameCache;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<MemberTeamDto> fetch(MemberSearchKey key, long offset, long limit) {
+        Long teamId = key.teamName() == null ? null : teamNameCache.findId(key.teamName());
+        CompiledQuery compiledQuery = compiled(key.shape() | (teamId != null ? TEAM_ID_RESOLVED : 0));
+        @SuppressWarnings("unchecked")
+        Query<MemberTeamDto> query = em.createQuery(compiledQuery.jpql()).unwrap(Query.class);
+        QueryDeadline.applyTo(query);
+        JPAUtil.setConstants(query, compiledQuery.constants(), bindings(key, teamId));
+        if (offset > 0) {
+            query.setFirstResult(Math.toIntExact(offset));
+        }
+        if (limit > 0) {
+            query.setMaxResults(Math.toIntExact(limit));
+        }
+        // 결과 행을 Hibernate 가 읽는 즉시 DTO 로 바꿔 Object[] 목록을 따로 만들지 않는다. 엔티티는 로딩하지 않는다
+        return query.setTupleTransformer((row, aliases) -> MemberTeamProjection.of(row))
+                .setReadOnly(true)
+                .getResultList();
+    }
+
+    public List<MemberTeamDto> fetch(MemberSearchKey key) {
+        return fetch(key, 0, 0);
+    }
+
+    private CompiledQuery compiled(int shape) {
+        CompiledQuery cached = compiled.get(shape);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        // 동시에 렌더링해도 결과가 같으므로 먼저 들어간 값을 쓴다
+        compiled.compareAndSet(shape, null, compile(shape));
+        return compiled.get(shape);
+    }
+
+    private CompiledQuery compile(int shape) {
+        JPAQuery<MemberTeamDto> query = new JPAQuery<Void>()
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(
+                        (shape & MemberSearchKey.USERNAME) != 0 ? member.username.eq(USERNAME) : null,
+                        (shape & MemberSearchKey.TEAM_NAME) == 0 ? null
+                                : (shape & TEAM_ID_RESOLVED) != 0 ? member.team.id.eq(TEAM_ID) : member.team.name.eq(TEAM_NAME),
+                        (shape & MemberSearchKey.AGE_GOE) != 0 ? member.age.goe(AGE_GOE) : null,
+                        (shape & MemberSearchKey.AGE_LOE) != 0 ? member.age.loe(AGE_LOE) : null
+                )
+                .orderBy(member.id.asc());
+
+        JPQLSerializer serializer = new JPQLSerializer(JPAProvider.getTemplates(em), em);
+        serializer.serialize(query.getMetadata(), false, null);
+        return new CompiledQuery(serializer.toString(), List.copyOf(serializer.getConstants()));
+    }
+
+    private Map<ParamExpression<?>, Object> bindings(MemberSearchKey key, Long teamId) {
+        Map<ParamExpression<?>, Object> params = new HashMap<>(8);
+        if (key.username() != null) {
+            params.put(USERNAME, key.username());
+        }
+        if (teamId != null) {
+            params.put(TEAM_ID, teamId);
+        } else if (key.teamName() != null) {
+            params.put(TEAM_NAME, key.teamName());
+        }
+        if (key.ageGoe() != null) {
+            params.put(AGE_GOE, key.ageGoe());
+        }
+        if (key.ageLoe() != null) {
+            params.put(AGE_LOE, key.ageLoe());
+        }
+        return params;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.query.cache", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.query.cache", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    private record CompiledQuery(String jpql, List<Object> constants) {
+    }
+}
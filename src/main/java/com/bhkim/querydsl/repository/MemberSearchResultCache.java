@@ -0,0 +1,150 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.cache.ExpiringLruCache;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * search(condition) 결과 캐시 (app.search-cache.enabled=true 일 때만).
+ * 같은 조건의 동시 요청은 먼저 온 요청 하나만 DB 를 조회하고 나머지는 그 결과를 기다린다 (single-flight).
+ * 항목 수(max-size)와 항목당 행 수(max-rows)를 함께 제한해 메모리 상한을 max-size * max-rows 행으로 둔다.
+ * <p>
+ * 읽기-쓰기 트랜잭션 안에서는 자기 트랜잭션의 미커밋 변경이 결과에 섞일 수 있으므로 캐시를 거치지 않는다.
+ * Member/Team 변경이 flush 될 때와 트랜잭션이 끝날 때 비우고, 그 사이 시작된 조회 결과는 캐시에 넣지 않는다.
+ */
+@Component
+public class MemberSearchResultCache implements MeterBinder {
+    private final boolean enabled;
+    private final int maxRows;
+    private final ExpiringLruCache<MemberSearchKey, List<MemberTeamDto>> cache;
+    private final ConcurrentHashMap<MemberSearchKey, CompletableFuture<List<MemberTeamDto>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bypassed = new LongAdder();
+
+    public MemberSearchResultCache(@Value("${app.search-cache.enabled:false}") boolean enabled,
+                                   @Value("${app.search-cache.max-size:500}") int maxSize,
+                                   @Value("${app.search-cache.max-rows:1000}") int maxRows,
+                                   @Value("${app.search-cache.ttl:5s}") Duration ttl) {
+        this.enabled = enabled;
+        this.maxRows = maxRows;
+        this.cache = new ExpiringLruCache<>(maxSize, ttl.toMillis());
+    }
+
+    public List<MemberTeamDto> get(MemberSearchKey key, Supplier<List<MemberTeamDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            bypassed.increment();
+            return loader.get();
+        }
+
+        List<MemberTeamDto> cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        CompletableFuture<List<MemberTeamDto>> mine = new CompletableFuture<>();
+        CompletableFuture<List<MemberTeamDto>> leader = inFlight.putIfAbsent(key, mine);
+        if (leader != null) {
+            coalesced.increment();
+            return join(leader);
+        }
+        try {
+            // 캐시 확인과 등록 사이에 앞선 조회가 끝나 캐시에 넣었을 수 있다
+            List<MemberTeamDto> result = cache.get(key);
+            if (result == null) {
+                result = load(key, loader);
+            }
+            mine.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private List<MemberTeamDto> load(MemberSearchKey key, Supplier<List<MemberTeamDto>> loader) {
+        loads.increment();
+        long loadedAt = generation.get();
+        // 여러 요청이 같은 리스트를 공유하므로 수정할 수 없게 감싼다
+        List<MemberTeamDto> result = Collections.unmodifiableList(loader.get());
+        if (result.size() <= maxRows && generation.get() == loadedAt) {
+            cache.put(key, result);
+            // 확인과 put 사이에 비워졌으면 방금 넣은 결과를 다시 뺀다
+            if (generation.get() != loadedAt) {
+                cache.invalidate(key);
+            }
+        }
+        return result;
+    }
+
+    private List<MemberTeamDto> join(CompletableFuture<List<MemberTeamDto>> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    @EventListener
+    public void onChange(EntityChangedEvent event) {
+        invalidate();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterCompletion(EntityChangedEvent event) {
+        invalidate();
+    }
+
+    private void invalidate() {
+        generation.incrementAndGet();
+        // 진행 중인 조회에 새 요청이 합류하지 않도록 떼어 낸다 (진행 중인 조회 자신은 끝까지 돈다)
+        inFlight.clear();
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("member.search.cache", cache, ExpiringLruCache::hitCount)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache", loads, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache", coalesced, LongAdder::sum)
+                .tag("result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache", bypassed, LongAdder::sum)
+                .tag("result", "bypassed")
+                .register(registry);
+        FunctionCounter.builder("member.search.cache.evictions", cache, ExpiringLruCache::evictionCount)
+                .register(registry);
+        Gauge.builder("member.search.cache.size", cache, ExpiringLruCache::size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,170 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.TeamStatsDto;
+import com.bhkim.querydsl.entity.TeamStatsSummary;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.CaseBuilder;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+import static com.bhkim.querydsl.entity.QTeamStatsSummary.teamStatsSummary;
+
+/**
+ * 팀별 회원 수 / 나이 평균·최소·최대 / 10살 단위 나이 분포를 DB 의 group by 한 번으로 계산한다.
+ * 회원 행을 애플리케이션으로 가져오지 않고 팀 수만큼의 행만 받는다.
+ * <p>
+ * app.stats-summary.enabled=true 이면 조건 없는 요청은 주기적으로 다시 채우는 요약 테이블(TEAM_STATS_SUMMARY)에서 읽는다.
+ * 요약은 마지막 갱신 시점 기준이므로 최신 값이 필요하면 조건을 주거나 요약을 끈다.
+ * 샤딩 모드에서는 샤드마다 group by 한 행을 이어 붙인다. 팀과 그 회원은 한 샤드에, 팀 없는 회원은 0 번 샤드에만 있어
+ * 한 그룹이 샤드 사이에 나뉘지 않기 때문이다 (having 도 샤드에서 걸면 된다). 요약 테이블은 기본 DB 에 둔다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberStatsRepository {
+    public static final int BUCKETS = 10;
+    private static final int BUCKET_WIDTH = 10;
+
+    private static final NumberExpression<Long> COUNT = member.count();
+    // JPQL 의 sum(int) 는 Long 이다
+    private static final NumberExpression<Long> AGE_SUM = Expressions.numberTemplate(Long.class, "sum({0})", member.age);
+    private static final NumberExpression<Integer> MIN_AGE = member.age.min();
+    private static final NumberExpression<Integer> MAX_AGE = member.age.max();
+    // 바인딩 파라미터가 아닌 SQL 리터럴로 내보내야 select 절 case 에서 타입이 정해진다
+    private static final NumberExpression<Long> ONE = Expressions.numberTemplate(Long.class, "1");
+    private static final NumberExpression<Long> ZERO = Expressions.numberTemplate(Long.class, "0");
+    private static final List<NumberExpression<Long>> HISTOGRAM = histogram();
+
+    private final JPAQueryFactory queryFactory;
+    private final EntityManager em;
+    private final MemberSearchPredicates predicates;
+    // app.sharding.enabled=true 일 때만 있다
+    private final ObjectProvider<ShardedMemberSearch> shardedSearch;
+    private final boolean summaryEnabled;
+
+    public MemberStatsRepository(JPAQueryFactory queryFactory, EntityManager em, MemberSearchPredicates predicates,
+                                 ObjectProvider<ShardedMemberSearch> shardedSearch,
+                                 @Value("${app.stats-summary.enabled:false}") boolean summaryEnabled) {
+        this.queryFactory = queryFactory;
+        this.em = em;
+        this.predicates = predicates;
+        this.shardedSearch = shardedSearch;
+        this.summaryEnabled = summaryEnabled;
+    }
+
+    /**
+     * @param minMembers 회원 수가 이 값 이상인 팀만 (having). null 이면 전부
+     */
+    public List<TeamStatsDto> teamStats(MemberSearchCondition condition, Long minMembers) {
+        if (summaryEnabled && MemberSearchKey.of(condition).equals(MemberSearchKey.of(new MemberSearchCondition()))) {
+            List<TeamStatsDto> summary = summaryStats(minMembers);
+            if (!summary.isEmpty()) {
+                return summary;
+            }
+        }
+        return liveStats(condition, minMembers);
+    }
+
+    public List<TeamStatsDto> liveStats(MemberSearchCondition condition, Long minMembers) {
+        return liveRows(condition, minMembers).stream()
+                .map(MemberStatsRepository::toDto)
+                .toList();
+    }
+
+    private List<Tuple> liveRows(MemberSearchCondition condition, Long minMembers) {
+        ShardedMemberSearch sharded = shardedSearch.getIfAvailable();
+        if (sharded == null) {
+            return liveRows(queryFactory, predicates.where(condition), minMembers);
+        }
+        Predicate where = predicates.whereByTeamName(condition);
+        return sharded.readTargets(condition, shard -> liveRows(shard.queryFactory(), where, minMembers)).stream()
+                .flatMap(List::stream)
+                .sorted(Comparator.comparing((Tuple row) -> row.get(team.id), Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList();
+    }
+
+    private static List<Tuple> liveRows(JPAQueryFactory queryFactory, Predicate where, Long minMembers) {
+        List<Expression<?>> select = new ArrayList<>(List.of(team.id, team.name, COUNT, AGE_SUM, MIN_AGE, MAX_AGE));
+        select.addAll(HISTOGRAM);
+
+        return queryFactory
+                .select(select.toArray(Expression[]::new))
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(where)
+                .groupBy(team.id, team.name)
+                .having(minMembers == null ? null : COUNT.goe(minMembers))
+                .orderBy(team.id.asc().nullsLast())
+                .fetch();
+    }
+
+    /**
+     * 요약 테이블을 지우고 조건 없는 통계로 다시 채운다. 나이 합은 평균에서 되돌리지 않고 sum(age) 를 그대로 저장한다.
+     */
+    @Transactional
+    public int refreshSummary() {
+        List<Tuple> rows = liveRows(new MemberSearchCondition(), null);
+        LocalDateTime now = LocalDateTime.now();
+
+        queryFactory.delete(teamStatsSummary).execute();
+        for (Tuple row : rows) {
+            long[] histogram = HISTOGRAM.stream().mapToLong(row::get).toArray();
+            em.persist(new TeamStatsSummary(row.get(team.id), row.get(team.name), row.get(COUNT), row.get(AGE_SUM),
+                    row.get(MIN_AGE), row.get(MAX_AGE), histogram, now));
+        }
+        return rows.size();
+    }
+
+    private List<TeamStatsDto> summaryStats(Long minMembers) {
+        return queryFactory
+                .selectFrom(teamStatsSummary)
+                .where(minMembers == null ? null : teamStatsSummary.memberCount.goe(minMembers))
+                .orderBy(teamStatsSummary.teamId.asc().nullsLast())
+                .fetch()
+                .stream()
+                .map(s -> new TeamStatsDto(s.getTeamId(), s.getTeamName(), s.getMemberCount(),
+                        (double) s.getAgeSum() / s.getMemberCount(), s.getMinAge(), s.getMaxAge(),
+                        Arrays.stream(s.getAgeHistogram()).boxed().toList()))
+                .toList();
+    }
+
+    private static TeamStatsDto toDto(Tuple row) {
+        long count = row.get(COUNT);
+        List<Long> histogram = new ArrayList<>(BUCKETS);
+        for (NumberExpression<Long> bucket : HISTOGRAM) {
+            histogram.add(row.get(bucket));
+        }
+        return new TeamStatsDto(row.get(team.id), row.get(team.name), count, (double) row.get(AGE_SUM) / count,
+                row.get(MIN_AGE), row.get(MAX_AGE), histogram);
+    }
+
+    // sum(case when age in [i*10, i*10+10) then 1 else 0 end). 첫 칸은 하한 없음 (음수 나이도 0 칸), 마지막 칸은 상한 없음
+    private static List<NumberExpression<Long>> histogram() {
+        List<NumberExpression<Long>> buckets = new ArrayList<>(BUCKETS);
+        for (int i = 0; i < BUCKETS; i++) {
+            CaseBuilder.Cases<Long, NumberExpression<Long>> when = new CaseBuilder()
+                    .when(i == 0 ? member.age.lt(BUCKET_WIDTH)
+                            : i == BUCKETS - 1 ? member.age.goe(i * BUCKET_WIDTH)
+                            : member.age.goe(i * BUCKET_WIDTH).and(member.age.lt((i + 1) * BUCKET_WIDTH)))
+                    .then(ONE);
+            buckets.add(when.otherwise(ZERO).sum());
+        }
+        return List.copyOf(buckets);
+    }
+}
@@ -0,0 +1,48 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpressionBase;
+import com.querydsl.core.types.Visitor;
+
+import java.util.List;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * member + team 을 MemberTeamDto 로 읽는 프로젝션.
+ * Projections.constructor 는 쿼리마다 생성자를 리플렉션으로 찾고 행마다 Constructor.newInstance 를 호출하지만,
+ * 이 식은 상수로 한 번만 만들고 행마다 생성자를 직접 호출한다.
+ */
+public final class MemberTeamProjection extends FactoryExpressionBase<MemberTeamDto> {
+    public static final MemberTeamProjection INSTANCE = new MemberTeamProjection();
+
+    private final List<Expression<?>> args = List.of(member.id, member.username, member.age, team.id, team.name);
+
+    private MemberTeamProjection() {
+        super(MemberTeamDto.class);
+    }
+
+    @Override
+    public List<Expression<?>> getArgs() {
+        return args;
+    }
+
+    @Override
+    public MemberTeamDto newInstance(Object... row) {
+        return of(row);
+    }
+
+    /**
+     * select 절이 getArgs() 순서인 Object[] 한 행을 DTO 로 바꾼다.
+     */
+    public static MemberTeamDto of(Object[] row) {
+        return new MemberTeamDto((Long) row[0], (String) row[1], (Integer) row[2], (Long) row[3], (String) row[4]);
+    }
+
+    @Override
+    public <R, C> R accept(Visitor<R, C> v, C context) {
+        return v.visit(this, context);
+    }
+}
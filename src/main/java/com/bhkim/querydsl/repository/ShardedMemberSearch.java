@@ -0,0 +1,491 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.admission.DeadlineJPAQueryFactory;
+import com.bhkim.querydsl.cache.ExpiringLruCache;
+import com.bhkim.querydsl.config.MemberShard;
+import com.bhkim.querydsl.config.MemberShards;
+import com.bhkim.querydsl.config.ShardingProperties;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Order;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.bhkim.querydsl.entity.QMember.member;
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * 샤딩 모드(app.sharding.enabled=true)의 검색과 벌크 연산. MemberRepositoryCustomImpl / MemberStatsRepository 가 이쪽으로 넘긴다.
+ * 팀 조건이 있으면 그 팀이 있는 샤드에만, 없으면 모든 샤드에 queryExecutor 로 동시에 보내고 정렬 순서대로 병합한다.
+ * <p>
+ * 페이지는 샤드마다 앞에서부터 offset + size 건을 받아 병합한 뒤 offset 만큼 버린다.
+ * 어느 샤드의 몇 번째 행이 전체 페이지에 들어갈지 모르기 때문이다. 그래서 뒤 페이지로 갈수록 샤드 수만큼 비싸진다.
+ * 회원 id 는 샤드 사이에 겹치지 않게 발급해야 한다 (정렬 동점 처리와 병합이 id 에 기대므로).
+ * 문자열 병합은 String.compareTo(코드 단위 순서)로 하므로 샤드 DB 의 문자열 정렬도 이진 collation 이어야 한다.
+ * 기동할 때 샤드마다 확인하고 다르면 시작하지 않는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardedMemberSearch {
+    private static final Map<String, SortKey> SORTABLE = Map.of(
+            "id", new SortKey(member.id, Comparator.comparing(MemberTeamDto::memberId)),
+            "username", new SortKey(member.username, Comparator.comparing(MemberTeamDto::username,
+                    Comparator.nullsFirst(Comparator.naturalOrder()))),
+            "age", new SortKey(member.age, Comparator.comparingInt(MemberTeamDto::age)),
+            "teamName", new SortKey(team.name, Comparator.comparing(MemberTeamDto::teamName,
+                    Comparator.nullsFirst(Comparator.naturalOrder()))));
+    // 이진 순서로 정렬된 값. 대소문자나 악센트를 언어 규칙으로 정렬하는 collation 이면 순서가 바뀐다
+    private static final List<String> COLLATION_PROBE = List.of("B", "a", "b", "\u00e4");
+
+    private final MemberShards shards;
+    private final MemberSearchPredicates predicates;
+    private final ExecutorService queryExecutor;
+    // 팀 이름 -> 그 이름의 팀이 있는 샤드 번호. Team 이 생성/변경/삭제되면 전부 비운다
+    private final ExpiringLruCache<String, Set<Integer>> teamShards;
+    private final AtomicLong teamGeneration = new AtomicLong();
+
+    public ShardedMemberSearch(MemberShards shards, MemberSearchPredicates predicates,
+                               @Qualifier("queryExecutor") ExecutorService queryExecutor, ShardingProperties properties) {
+        this.shards = shards;
+        this.predicates = predicates;
+        this.queryExecutor = queryExecutor;
+        this.teamShards = new ExpiringLruCache<>(10_000, properties.teamCacheTtl().toMillis());
+        shards.all().forEach(ShardedMemberSearch::checkBinaryCollation);
+    }
+
+    private static void checkBinaryCollation(MemberShard shard) {
+        List<String> sorted = new JdbcTemplate(shard.dataSource()).queryForList(
+                "select x from (values ('b'), ('\u00e4'), ('a'), ('B')) t(x) order by x", String.class);
+        if (!sorted.equals(COLLATION_PROBE)) {
+            throw new IllegalStateException("shard " + shard.index() + " does not sort strings in binary order: " + sorted
+                    + ". Merging shard results needs a binary collation");
+        }
+    }
+
+    public List<MemberTeamDto> search(MemberSearchCondition condition) {
+        Sorting sorting = sorting(Sort.unsorted());
+        List<List<MemberTeamDto>> parts = fanOut(targets(condition), shard -> content(shard, condition, null, sorting, null));
+        return merge(parts, sorting.comparator(), Long.MAX_VALUE);
+    }
+
+    /**
+     * 대상 샤드마다 회원 id 순서의 커서를 열고 읽는 대로 k-way 병합한다. 메모리에는 샤드마다 fetch size 만큼만 남는다.
+     * 샤드 커서는 스트림이 끝까지 읽히는 동안 열려 있어야 하므로 스레드에 묶이는 트랜잭션 매니저 대신
+     * 샤드마다 EntityManager 와 리소스 로컬 트랜잭션을 직접 열고, 스트림을 닫을 때 함께 닫는다 (try-with-resources 로 써야 한다).
+     */
+    public Stream<MemberTeamDto> stream(MemberSearchCondition condition, int fetchSize) {
+        List<ShardCursor> cursors = new ArrayList<>();
+        try {
+            for (MemberShard shard : targets(condition)) {
+                cursors.add(ShardCursor.open(shard, em -> new DeadlineJPAQueryFactory(em)
+                        .select(MemberTeamProjection.INSTANCE)
+                        .from(member)
+                        .leftJoin(member.team, team)
+                        .where(predicates.whereByTeamName(condition))
+                        .orderBy(member.id.asc())
+                        .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                        .setHint(HibernateHints.HINT_READ_ONLY, true)
+                        .setHint(HibernateHints.HINT_CACHEABLE, false)
+                        .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                        .stream()));
+            }
+        } catch (RuntimeException e) {
+            cursors.forEach(ShardCursor::close);
+            throw e;
+        }
+        Iterator<MemberTeamDto> merged = merging(cursors.stream().map(cursor -> cursor.rows().iterator()).toList(),
+                SORTABLE.get("id").comparator());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(merged, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> cursors.forEach(ShardCursor::close));
+    }
+
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable page) {
+        Sorting sorting = sorting(page.getSort());
+        long window = page.getOffset() + page.getPageSize();
+        List<ShardPage> parts = fanOut(targets(condition), shard -> shard.read(() -> new ShardPage(
+                content(shard, condition, null, sorting, window), count(shard, condition))));
+
+        List<MemberTeamDto> merged = merge(parts.stream().map(ShardPage::content).toList(), sorting.comparator(), window);
+        long total = parts.stream().mapToLong(ShardPage::count).sum();
+        return new PageImpl<>(skip(merged, page.getOffset()), page, total);
+    }
+
+    /**
+     * 정렬 순서로 offset 번째부터 limit 건. 샤드마다 offset + limit 건씩 읽는다.
+     */
+    public List<MemberTeamDto> searchContent(MemberSearchCondition condition, Sort sort, long offset, int limit) {
+        return skip(searchAfter(condition, null, sort, offset + limit), offset);
+    }
+
+    /**
+     * seek 조건(키셋 커서)을 만족하는 회원을 정렬 순서로 앞에서 limit 건.
+     */
+    public List<MemberTeamDto> searchAfter(MemberSearchCondition condition, Predicate seek, Sort sort, long limit) {
+        Sorting sorting = sorting(sort);
+        List<List<MemberTeamDto>> parts = fanOut(targets(condition), shard -> content(shard, condition, seek, sorting, limit));
+        return merge(parts, sorting.comparator(), limit);
+    }
+
+    public long count(MemberSearchCondition condition) {
+        return fanOut(targets(condition), shard -> shard.read(() -> count(shard, condition)))
+                .stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * fields 만 골라 회원 id 순서로. 병합하려고 member.id 를 함께 읽는다.
+     */
+    public List<Map<String, Object>> searchFields(MemberSearchCondition condition, List<MemberField> fields) {
+        Expression<?>[] select = Stream.concat(fields.stream().map(MemberField::expression), Stream.of(member.id))
+                .toArray(Expression[]::new);
+        boolean teamJoin = fields.stream().anyMatch(MemberField::teamJoin);
+        List<List<FieldRow>> parts = fanOut(targets(condition), shard -> shard.read(() -> {
+            JPAQuery<Tuple> query = shard.queryFactory().select(select).from(member);
+            if (teamJoin) {
+                query.leftJoin(member.team, team);
+            }
+            return query.where(predicates.whereByTeamName(condition))
+                    .orderBy(member.id.asc())
+                    .fetch()
+                    .stream()
+                    .map(row -> FieldRow.of(row, fields))
+                    .toList();
+        }));
+        return merge(parts, Comparator.comparing(FieldRow::id), Long.MAX_VALUE).stream()
+                .map(FieldRow::values)
+                .toList();
+    }
+
+    // 회원 id 로는 샤드를 알 수 없으므로 모든 샤드에 묻는다 (id 는 샤드 사이에 겹치지 않는다)
+    public List<MemberTeamDto> findByIds(List<Long> ids) {
+        return fanOut(shards.all(), shard -> shard.read(() -> shard.queryFactory()
+                .select(MemberTeamProjection.INSTANCE)
+                .from(member)
+                .leftJoin(member.team, team)
+                .where(member.id.in(ids))
+                .fetch()))
+                .stream()
+                .flatMap(List::stream)
+                .toList();
+    }
+
+    /**
+     * 팀을 fetch join 한 회원 엔티티를 회원 id 순서로. 샤드 트랜잭션이 끝난 뒤라 준영속 상태다.
+     */
+    public List<Member> findAllWithTeam(MemberSearchCondition condition) {
+        List<List<Member>> parts = fanOut(targets(condition), shard -> shard.read(() -> shard.queryFactory()
+                .selectFrom(member)
+                .leftJoin(member.team, team).fetchJoin()
+                .where(predicates.whereByTeamName(condition))
+                .orderBy(member.id.asc())
+                .fetch()));
+        return merge(parts, Comparator.comparing(Member::getId), Long.MAX_VALUE);
+    }
+
+    /**
+     * 조건을 만족하는 회원이 있을 수 있는 샤드마다 벌크 update / delete 를 샤드 트랜잭션으로 실행하고 건수를 더한다.
+     * where 절은 MemberSearchPredicates.forDmlByTeamName 으로 만든다 (팀 id 캐시는 기본 DB 기준이다).
+     * 샤드끼리는 한 트랜잭션이 아니므로 한 샤드가 실패해도 다른 샤드의 변경은 커밋될 수 있다.
+     */
+    public long execute(MemberSearchCondition condition, Function<JPAQueryFactory, Long> statement) {
+        return fanOut(targets(condition), shard -> shard.write(() -> statement.apply(shard.queryFactory())))
+                .stream()
+                .mapToLong(Long::longValue)
+                .sum();
+    }
+
+    /**
+     * 조건을 만족하는 회원이 있을 수 있는 샤드마다 읽기 전용 샤드 트랜잭션으로 query 를 실행한다 (샤드 순서).
+     */
+    <T> List<T> readTargets(MemberSearchCondition condition, Function<MemberShard, T> query) {
+        return fanOut(targets(condition), shard -> shard.read(() -> query.apply(shard)));
+    }
+
+    /**
+     * 조건을 만족하는 회원이 있을 수 있는 샤드. 팀 조건이 없으면 전부.
+     */
+    List<MemberShard> targets(MemberSearchCondition condition) {
+        MemberSearchKey key = MemberSearchKey.of(condition);
+        // teamName 과 teamNames 는 AND 이므로 teamName 하나로 충분하다
+        List<String> teamNames = key.teamName() != null ? List.of(key.teamName()) : key.teamNames();
+        if (teamNames == null) {
+            return shards.all();
+        }
+        Set<Integer> indexes = new LinkedHashSet<>();
+        for (String teamName : teamNames) {
+            indexes.addAll(teamShards(teamName));
+        }
+        return indexes.stream().sorted().map(shards::get).toList();
+    }
+
+    private Set<Integer> teamShards(String teamName) {
+        Set<Integer> cached = teamShards.get(teamName);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = teamGeneration.get();
+        Set<Integer> located = locate(teamName);
+        // 조회 도중 팀이 바뀌었으면 결과는 쓰되 캐시에는 넣지 않는다. 확인과 put 사이에 비워졌으면 다시 뺀다
+        if (teamGeneration.get() == loadedAt) {
+            teamShards.put(teamName, located);
+            if (teamGeneration.get() != loadedAt) {
+                teamShards.invalidate(teamName);
+            }
+        }
+        return located;
+    }
+
+    @EventListener
+    public void onChange(EntityChangedEvent event) {
+        invalidateTeams(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterCompletion(EntityChangedEvent event) {
+        invalidateTeams(event);
+    }
+
+    private void invalidateTeams(EntityChangedEvent event) {
+        if (event.entityType() != Team.class) {
+            return;
+        }
+        teamGeneration.incrementAndGet();
+        teamShards.invalidateAll();
+    }
+
+    private Set<Integer> locate(String teamName) {
+        List<List<Long>> found = fanOut(shards.all(), shard -> shard.read(() -> shard.queryFactory()
+                .select(team.id)
+                .from(team)
+                .where(team.name.eq(teamName))
+                .fetch()));
+        Set<Integer> indexes = new LinkedHashSet<>();
+        for (int i = 0; i < found.size(); i++) {
+            if (!found.get(i).isEmpty()) {
+                indexes.add(i);
+            }
+        }
+        return Set.copyOf(indexes);
+    }
+
+    private List<MemberTeamDto> content(MemberShard shard, MemberSearchCondition condition, Predicate seek,
+                                        Sorting sorting, Long limit) {
+        return shard.read(() -> {
+            JPAQuery<MemberTeamDto> query = shard.queryFactory()
+                    .select(MemberTeamProjection.INSTANCE)
+                    .from(member)
+                    .leftJoin(member.team, team)
+                    .where(predicates.whereByTeamName(condition), seek)
+                    .orderBy(sorting.orders());
+            return limit == null ? query.fetch() : query.limit(limit).fetch();
+        });
+    }
+
+    private Long count(MemberShard shard, MemberSearchCondition condition) {
+        return shard.queryFactory().select(member.count()).from(member).where(predicates.whereByTeamName(condition)).fetchOne();
+    }
+
+    private static <T> List<T> skip(List<T> merged, long offset) {
+        return new ArrayList<>(merged.subList((int) Math.min(offset, merged.size()), merged.size()));
+    }
+
+    private <T> List<T> fanOut(List<MemberShard> targets, Function<MemberShard, T> task) {
+        if (targets.size() == 1) {
+            return List.of(task.apply(targets.get(0)));
+        }
+        List<CompletableFuture<T>> futures = targets.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> task.apply(shard), queryExecutor))
+                .toList();
+        try {
+            return futures.stream().map(CompletableFuture::join).toList();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    // 샤드별로 정렬된 목록을 k-way 병합해 앞에서 limit 건까지
+    private static <T> List<T> merge(List<List<T>> parts, Comparator<T> comparator, long limit) {
+        if (parts.size() == 1) {
+            List<T> only = parts.get(0);
+            return only.size() <= limit ? only : only.subList(0, (int) limit);
+        }
+        int total = parts.stream().mapToInt(List::size).sum();
+        List<T> merged = new ArrayList<>((int) Math.min(total, limit));
+        Iterator<T> rows = merging(parts.stream().map(List::iterator).toList(), comparator);
+        while (rows.hasNext() && merged.size() < limit) {
+            merged.add(rows.next());
+        }
+        return merged;
+    }
+
+    // 각자 정렬된 parts 를 꺼낼 때마다 하나씩 병합한다 (샤드마다 맨 앞 행 하나만 들고 있다)
+    private static <T> Iterator<T> merging(List<Iterator<T>> parts, Comparator<T> comparator) {
+        PriorityQueue<Cursor<T>> heads = new PriorityQueue<>((a, b) -> comparator.compare(a.current(), b.current()));
+        for (Iterator<T> part : parts) {
+            if (part.hasNext()) {
+                heads.add(new Cursor<>(part));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                Cursor<T> head = heads.poll();
+                if (head == null) {
+                    throw new NoSuchElementException();
+                }
+                T current = head.current();
+                if (head.advance()) {
+                    heads.add(head);
+                }
+                return current;
+            }
+        };
+    }
+
+    // 단일 DB 검색과 같은 순서가 되도록 SQL 정렬과 병합 비교를 같이 만든다. id 가 없으면 id asc 를 붙인다
+    private static Sorting sorting(Sort sort) {
+        List<OrderSpecifier<?>> orders = new ArrayList<>();
+        Comparator<MemberTeamDto> comparator = null;
+        boolean hasId = false;
+        for (Sort.Order order : sort) {
+            SortKey key = SORTABLE.get(order.getProperty());
+            if (key == null) {
+                throw new IllegalArgumentException("unsupported sort property: " + order.getProperty());
+            }
+            hasId |= order.getProperty().equals("id");
+            orders.add(key.specifier(order.isAscending()));
+            Comparator<MemberTeamDto> next = order.isAscending() ? key.comparator() : key.comparator().reversed();
+            comparator = comparator == null ? next : comparator.thenComparing(next);
+        }
+        if (!hasId) {
+            SortKey id = SORTABLE.get("id");
+            orders.add(id.specifier(true));
+            comparator = comparator == null ? id.comparator() : comparator.thenComparing(id.comparator());
+        }
+        return new Sorting(orders.toArray(OrderSpecifier[]::new), comparator);
+    }
+
+    private record SortKey(ComparableExpressionBase<?> path, Comparator<MemberTeamDto> comparator) {
+
+        // 병합 비교와 맞도록 null 은 오름차순에서 앞, 내림차순에서 뒤
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        OrderSpecifier<?> specifier(boolean ascending) {
+            OrderSpecifier<?> specifier = new OrderSpecifier(ascending ? Order.ASC : Order.DESC, path);
+            return ascending ? specifier.nullsFirst() : specifier.nullsLast();
+        }
+    }
+
+    private record Sorting(OrderSpecifier<?>[] orders, Comparator<MemberTeamDto> comparator) {
+    }
+
+    private record ShardPage(List<MemberTeamDto> content, long count) {
+    }
+
+    private record FieldRow(Long id, Map<String, Object> values) {
+
+        static FieldRow of(Tuple row, List<MemberField> fields) {
+            Map<String, Object> values = new LinkedHashMap<>(fields.size() * 2);
+            for (MemberField field : fields) {
+                values.put(field.jsonName(), row.get(field.expression()));
+            }
+            return new FieldRow(row.get(member.id), values);
+        }
+    }
+
+    private static final class Cursor<T> {
+        private final Iterator<T> rows;
+        private T current;
+
+        // rows 는 비어 있지 않아야 한다
+        Cursor(Iterator<T> rows) {
+            this.rows = rows;
+            this.current = rows.next();
+        }
+
+        T current() {
+            return current;
+        }
+
+        boolean advance() {
+            if (!rows.hasNext()) {
+                return false;
+            }
+            current = rows.next();
+            return true;
+        }
+    }
+
+    // 샤드 하나의 열린 커서. 닫으면 커서, 트랜잭션 (읽기만 했으므로 롤백), EntityManager 순으로 닫는다
+    private record ShardCursor(EntityManager em, Stream<MemberTeamDto> rows) {
+
+        static ShardCursor open(MemberShard shard, Function<EntityManager, Stream<MemberTeamDto>> query) {
+            EntityManager em = shard.entityManagerFactory().createEntityManager();
+            try {
+                em.getTransaction().begin();
+                return new ShardCursor(em, query.apply(em));
+            } catch (RuntimeException e) {
+                new ShardCursor(em, Stream.empty()).close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                rows.close();
+            } finally {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                em.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.config.MemberShard;
+import com.bhkim.querydsl.config.MemberShards;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import com.bhkim.querydsl.event.EntityChangedEvent.ChangeType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 샤딩 모드(app.sharding.enabled=true)의 회원/팀 쓰기. 행은 MemberShards.shardFor(team_id) 샤드에 넣는다.
+ * 팀 id / 회원 id 는 기본 DB (spring.datasource) 의 시퀀스에서 받아 샤드 사이에 겹치지 않게 한다 (병합이 id 에 기댄다).
+ * 기본 DB 의 member / team 테이블에는 쓰지 않는다 (EntityChangeListener 가 JPA 쓰기를 막는다).
+ * <p>
+ * JDBC 로 넣으므로 EntityChangeListener 대신 EntityChangedEvent 를 직접 발행한다. 기본 DB 트랜잭션 안에서 발행해야
+ * 커밋 후 리스너(팀 샤드 캐시 등)도 돈다. 샤드 쓰기는 샤드 트랜잭션으로 먼저 커밋된다.
+ * 회원의 팀을 바꾸면 샤드가 달라질 수 있으므로 여기서는 다루지 않는다.
+ */
+@Component
+@ConditionalOnProperty(prefix = "app.sharding", name = "enabled", havingValue = "true")
+public class ShardedMemberWriter {
+    // Member / Team 의 @SequenceGenerator allocationSize. 한 번 받은 값 다음 구간은 JPA 가 쓸 수 있으므로 건너뛴다
+    private static final int ALLOCATION_SIZE = 100;
+
+    private final MemberShards shards;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+
+    public ShardedMemberWriter(MemberShards shards, JdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher) {
+        this.shards = shards;
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+    }
+
+    @Transactional
+    public long createTeam(String name) {
+        long teamId = jdbcTemplate.queryForObject("select next value for team_seq", Long.class);
+        new JdbcTemplate(shards.shardFor(teamId).dataSource())
+                .update("insert into team (team_id, name) values (?, ?)", teamId, name);
+        publisher.publishEvent(new EntityChangedEvent(Team.class, teamId, ChangeType.INSERT));
+        return teamId;
+    }
+
+    @Transactional
+    public void renameTeam(long teamId, String name) {
+        int updated = new JdbcTemplate(shards.shardFor(teamId).dataSource())
+                .update("update team set name = ? where team_id = ?", name, teamId);
+        if (updated == 0) {
+            throw new IllegalArgumentException("no team " + teamId);
+        }
+        publisher.publishEvent(new EntityChangedEvent(Team.class, teamId, ChangeType.UPDATE));
+    }
+
+    @Transactional
+    public long createMember(String username, int age, Long teamId) {
+        return createMembers(List.of(new NewMember(username, age, teamId))).get(0);
+    }
+
+    /**
+     * 회원 id 를 한 구간으로 받아 샤드별로 JDBC batch insert 한다. 돌려주는 id 는 members 순서.
+     */
+    @Transactional
+    public List<Long> createMembers(List<NewMember> members) {
+        if (members.isEmpty()) {
+            return List.of();
+        }
+        // Hibernate 가 메모리에 들고 있을 수 있는 시퀀스 구간과 겹치지 않도록 한 구간을 건너뛰고 시작한다 (MemberBulkLoader 의 CSV 적재와 같다)
+        long firstId = jdbcTemplate.queryForObject("select next value for member_seq", Long.class) + ALLOCATION_SIZE;
+        jdbcTemplate.execute("alter sequence member_seq restart with " + (firstId + members.size() + ALLOCATION_SIZE));
+
+        List<Long> ids = new ArrayList<>(members.size());
+        Map<MemberShard, List<Object[]>> rowsByShard = new LinkedHashMap<>();
+        for (int i = 0; i < members.size(); i++) {
+            NewMember newMember = members.get(i);
+            long memberId = firstId + i;
+            ids.add(memberId);
+            rowsByShard.computeIfAbsent(shards.shardFor(newMember.teamId()), shard -> new ArrayList<>())
+                    .add(new Object[]{memberId, newMember.username(), newMember.age(), newMember.teamId()});
+        }
+        rowsByShard.forEach((shard, rows) -> new TransactionTemplate(shard.transactionManager())
+                .executeWithoutResult(status -> new JdbcTemplate(shard.dataSource())
+                        .batchUpdate("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)", rows)));
+        publisher.publishEvent(members.size() == 1
+                ? new EntityChangedEvent(Member.class, ids.get(0), ChangeType.INSERT)
+                : EntityChangedEvent.bulk(Member.class));
+        return ids;
+    }
+
+    public record NewMember(String username, int age, Long teamId) {
+    }
+}
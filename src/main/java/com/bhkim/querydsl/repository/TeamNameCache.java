@@ -0,0 +1,156 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import com.querydsl.core.Tuple;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.bhkim.querydsl.entity.QTeam.team;
+
+/**
+ * 팀 이름 -> 팀 id 캐시. 팀 조건을 team.name 조인 대신 member.team_id 비교로 바꾸기 위해 쓴다.
+ * 이름이 없거나 여러 팀이 같은 이름을 쓰면 결과에서 빠진다 (호출 측은 조인 조건으로 처리). 이 "풀리지 않음" 도 캐시한다.
+ * 캐시에 없는 이름은 여러 개라도 IN 쿼리 한 번으로 함께 찾는다. 항목 수가 max-size 를 넘으면 더 넣지 않는다.
+ * Team 이 생성/변경/삭제되면 전부 비운다.
+ */
+@Component
+public class TeamNameCache implements MeterBinder {
+    private final JPAQueryFactory queryFactory;
+    private final boolean enabled;
+    // 값이 NO_ID 이면 그 이름의 팀이 없거나 여럿이다
+    private static final long NO_ID = -1L;
+
+    private final int maxSize;
+    private final Map<String, Long> ids = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public TeamNameCache(JPAQueryFactory queryFactory, @Value("${app.team-cache.enabled:true}") boolean enabled,
+                         @Value("${app.team-cache.max-size:10000}") int maxSize) {
+        this.queryFactory = queryFactory;
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+    }
+
+    public Long findId(String name) {
+        return findIds(List.of(name)).get(name);
+    }
+
+    /**
+     * 이름 -> 팀 id. 팀이 없거나 같은 이름의 팀이 여럿인 이름은 빠진다.
+     */
+    public Map<String, Long> findIds(Collection<String> names) {
+        if (!enabled) {
+            return Map.of();
+        }
+        Map<String, Long> found = new HashMap<>(names.size() * 2);
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Long cached = ids.get(name);
+            if (cached == null) {
+                missing.add(name);
+                continue;
+            }
+            hits.increment();
+            if (cached != NO_ID) {
+                found.put(name, cached);
+            }
+        }
+        if (missing.isEmpty()) {
+            return found;
+        }
+        misses.add(missing.size());
+
+        long loadedAt = generation.get();
+        List<Tuple> rows = queryFactory
+                .select(team.name, team.id)
+                .from(team)
+                .where(missing.size() == 1 ? team.name.eq(missing.get(0)) : team.name.in(missing))
+                .setHint(HibernateHints.HINT_CACHEABLE, true)
+                .setHint(HibernateHints.HINT_CACHE_REGION, "team-name")
+                .fetch();
+        Map<String, Long> loaded = new HashMap<>(missing.size() * 2);
+        for (String name : missing) {
+            loaded.put(name, NO_ID);
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        for (Tuple row : rows) {
+            String name = row.get(team.name);
+            loaded.put(name, counts.merge(name, 1, Integer::sum) == 1 ? row.get(team.id) : NO_ID);
+        }
+        loaded.forEach((name, id) -> {
+            if (id != NO_ID) {
+                found.put(name, id);
+            }
+        });
+        // 조회 도중 팀이 바뀌었으면 결과는 쓰되 캐시에는 넣지 않는다
+        if (generation.get() == loadedAt && ids.size() + loaded.size() <= maxSize) {
+            ids.putAll(loaded);
+            // 확인과 put 사이에 비워졌으면 방금 넣은 값을 다시 뺀다 (그 뒤에 다른 조회가 넣은 값은 두고)
+            if (generation.get() != loadedAt) {
+                loaded.forEach(ids::remove);
+            }
+        }
+        return found;
+    }
+
+    @EventListener
+    public void onChange(EntityChangedEvent event) {
+        invalidate(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void afterCompletion(EntityChangedEvent event) {
+        invalidate(event);
+    }
+
+    private void invalidate(EntityChangedEvent event) {
+        if (event.entityType() != Team.class) {
+            return;
+        }
+        generation.incrementAndGet();
+        evictions.add(ids.size());
+        ids.clear();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("team.name.cache", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("team.name.cache", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("team.name.cache.evictions", evictions, LongAdder::sum)
+                .register(registry);
+        Gauge.builder("team.name.cache.hit.ratio", this, TeamNameCache::hitRatio)
+                .register(registry);
+    }
+
+    private double hitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+}
@@ -0,0 +1,25 @@
+package com.bhkim.querydsl.repository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * app.stats-summary.enabled=true 일 때 요약 테이블을 refresh-interval 마다 다시 채운다.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.stats-summary", name = "enabled", havingValue = "true")
+public class TeamStatsSummaryRefresher {
+    private final MemberStatsRepository statsRepository;
+
+    @Scheduled(initialDelayString = "${app.stats-summary.initial-delay:0s}",
+            fixedDelayString = "${app.stats-summary.refresh-interval:60s}")
+    public void refresh() {
+        int rows = statsRepository.refreshSummary();
+        log.debug("team stats summary refreshed: {} rows", rows);
+    }
+}
@@ -0,0 +1,167 @@
+package com.bhkim.querydsl.service;
+
+import com.bhkim.querydsl.config.MemberSeedProperties;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import com.bhkim.querydsl.repository.ShardedMemberWriter;
+import com.bhkim.querydsl.repository.ShardedMemberWriter.NewMember;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 테스트/부하 데이터 대량 적재.
+ * JPA 경로는 JDBC batch + pooled 시퀀스 + N 건마다 flush/clear 로 영속성 컨텍스트 크기를 고정한다.
+ * csvFastPath 를 켜면 회원은 H2 CSVREAD 한 문장으로 넣는다.
+ * 샤딩 모드에서는 ShardedMemberWriter 로 batchSize 건씩 팀의 샤드에 넣는다 (csvFastPath 는 쓰지 않는다).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MemberBulkLoader {
+    private static final int MEMBER_ID_ALLOCATION_SIZE = 100;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+    // app.sharding.enabled=true 일 때만 있다
+    private final ObjectProvider<ShardedMemberWriter> shardedWriter;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Transactional
+    public long load(MemberSeedProperties properties) {
+        ShardedMemberWriter sharded = shardedWriter.getIfAvailable();
+        if (sharded != null) {
+            return loadIntoShards(sharded, properties);
+        }
+        List<Long> teamIds = persistTeams(properties.teamCount());
+        long rows = properties.csvFastPath()
+                ? loadMembersFromCsv(teamIds, properties.rows())
+                : persistMembers(teamIds, properties.rows(), properties.batchSize());
+        log.info("loaded teams={}, members={}, csvFastPath={}", teamIds.size(), rows, properties.csvFastPath());
+        return rows;
+    }
+
+    private long loadIntoShards(ShardedMemberWriter writer, MemberSeedProperties properties) {
+        List<Long> teamIds = new ArrayList<>(properties.teamCount());
+        for (int i = 0; i < properties.teamCount(); i++) {
+            teamIds.add(writer.createTeam(teamName(i)));
+        }
+        long rows = properties.rows();
+        List<NewMember> batch = new ArrayList<>(properties.batchSize());
+        for (long i = 0; i < rows; i++) {
+            batch.add(new NewMember("member" + i, (int) (i % 100), teamIds.get((int) (i % teamIds.size()))));
+            if (batch.size() == properties.batchSize()) {
+                writer.createMembers(batch);
+                batch.clear();
+            }
+        }
+        writer.createMembers(batch);
+        log.info("loaded into shards teams={}, members={}", teamIds.size(), rows);
+        return rows;
+    }
+
+    private List<Long> persistTeams(int teamCount) {
+        List<Long> teamIds = new ArrayList<>(teamCount);
+        for (int i = 0; i < teamCount; i++) {
+            Team team = new Team(teamName(i));
+            em.persist(team);
+            teamIds.add(team.getId());
+        }
+        em.flush();
+        em.clear();
+        return teamIds;
+    }
+
+    private long persistMembers(List<Long> teamIds, long rows, int batchSize) {
+        em.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        List<Team> teams = teamReferences(teamIds);
+        for (long i = 0; i < rows; i++) {
+            Team team = teams.get((int) (i % teams.size()));
+            em.persist(Member.ofTeamReference("member" + i, (int) (i % 100), team));
+            if ((i + 1) % batchSize == 0) {
+                em.flush();
+                em.clear();
+                teams = teamReferences(teamIds);
+            }
+        }
+        em.flush();
+        em.clear();
+        return rows;
+    }
+
+    private List<Team> teamReferences(List<Long> teamIds) {
+        List<Team> teams = new ArrayList<>(teamIds.size());
+        for (Long teamId : teamIds) {
+            teams.add(em.getReference(Team.class, teamId));
+        }
+        return teams;
+    }
+
+    private long loadMembersFromCsv(List<Long> teamIds, long rows) {
+        // Hibernate 가 메모리에 들고 있는 시퀀스 구간과 겹치지 않도록 한 구간을 건너뛰고 시작한다
+        Long next = jdbcTemplate.queryForObject("select next value for member_seq", Long.class);
+        long firstId = next + MEMBER_ID_ALLOCATION_SIZE;
+
+        Path csv = writeCsv(teamIds, rows, firstId);
+        try {
+            // CSVREAD 의 파일명은 바인딩 파라미터를 받지 않아 리터럴로 넣는다 (임시 파일 경로라 외부 입력 아님)
+            String fileName = csv.toAbsolutePath().toString().replace("'", "''");
+            int inserted = jdbcTemplate.update("insert into member (member_id, username, age, team_id) "
+                    + "select cast(member_id as bigint), username, cast(age as int), cast(team_id as bigint) "
+                    + "from csvread('" + fileName + "')");
+            jdbcTemplate.execute("alter sequence member_seq restart with " + (firstId + rows + MEMBER_ID_ALLOCATION_SIZE));
+            // 엔티티 리스너를 거치지 않은 insert 이므로 캐시/읽기 모델에 직접 알린다
+            publisher.publishEvent(EntityChangedEvent.bulk(Member.class));
+            return inserted;
+        } finally {
+            try {
+                Files.deleteIfExists(csv);
+            } catch (IOException e) {
+                log.warn("failed to delete {}", csv, e);
+            }
+        }
+    }
+
+    private Path writeCsv(List<Long> teamIds, long rows, long firstId) {
+        try {
+            Path csv = Files.createTempFile("members", ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+                writer.write("MEMBER_ID,USERNAME,AGE,TEAM_ID\n");
+                for (long i = 0; i < rows; i++) {
+                    writer.write(String.valueOf(firstId + i));
+                    writer.write(",member" + i + ",");
+                    writer.write(String.valueOf(i % 100));
+                    writer.write(',');
+                    writer.write(String.valueOf(teamIds.get((int) (i % teamIds.size()))));
+                    writer.write('\n');
+                }
+            }
+            return csv;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+}
@@ -0,0 +1,85 @@
+package com.bhkim.querydsl.service;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.repository.MemberRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * 검색 결과를 한 건씩 읽어서 바로 응답에 쓴다. 결과 크기와 무관하게 메모리 사용량이 일정하다.
+ */
+@Service
+@RequiredArgsConstructor
+public class MemberExportService {
+    private final MemberRepository memberRepository;
+    private final ObjectMapper objectMapper;
+
+    public enum Format { NDJSON, CSV }
+
+    @Transactional(readOnly = true)
+    public void export(MemberSearchCondition condition, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try (Stream<MemberTeamDto> rows = memberRepository.stream(condition)) {
+            if (format == Format.CSV) {
+                writeCsv(rows.iterator(), writer);
+            } else {
+                writeNdjson(rows.iterator(), writer);
+            }
+        }
+        writer.flush();
+    }
+
+    private void writeNdjson(Iterator<MemberTeamDto> rows, Writer writer) throws IOException {
+        // 행마다 writer 를 닫거나 flush 하지 않도록 설정 (flush 는 버퍼가 찰 때만)
+        ObjectWriter rowWriter = objectMapper.writerFor(MemberTeamDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        while (rows.hasNext()) {
+            rowWriter.writeValue(writer, rows.next());
+            writer.write('\n');
+        }
+    }
+
+    private void writeCsv(Iterator<MemberTeamDto> rows, Writer writer) throws IOException {
+        writer.write("memberId,username,age,teamId,teamName\n");
+        while (rows.hasNext()) {
+            MemberTeamDto row = rows.next();
+            writer.write(String.valueOf(row.memberId()));
+            writer.write(',');
+            writer.write(csv(row.username()));
+            writer.write(',');
+            writer.write(String.valueOf(row.age()));
+            writer.write(',');
+            writer.write(row.teamId() == null ? "" : String.valueOf(row.teamId()));
+            writer.write(',');
+            writer.write(csv(row.teamName()));
+            writer.write('\n');
+        }
+    }
+
+    private String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        // RFC 4180: 구분자, 따옴표, 줄바꿈(CR / LF)이 들어간 값은 따옴표로 감싼다
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
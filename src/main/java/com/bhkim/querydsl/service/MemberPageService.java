@@ -0,0 +1,112 @@
+package com.bhkim.querydsl.service;
+
+import com.bhkim.querydsl.dto.LowerBoundPage;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.repository.MemberRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * app.parallel-page.enabled=true 이면 content 와 count 쿼리를 queryExecutor 의 각자 스레드, 커넥션, 읽기 전용 트랜잭션에서 동시에 실행한다.
+ * count 가 countTimeout 안에 끝나지 않으면 기다리지 않고 "최소 한 건 더 있음" 을 total 로 하는 {@link LowerBoundPage} 를 돌려준다.
+ */
+@Slf4j
+@Service
+public class MemberPageService {
+    private final MemberRepository memberRepository;
+    private final ExecutorService queryExecutor;
+    private final TransactionTemplate contentTx;
+    private final TransactionTemplate countTx;
+    private final boolean parallel;
+    private final Duration countTimeout;
+
+    public MemberPageService(MemberRepository memberRepository,
+                             @Qualifier("queryExecutor") ExecutorService queryExecutor,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.parallel-page.enabled:false}") boolean parallel,
+                             @Value("${app.parallel-page.count-timeout:2s}") Duration countTimeout,
+                             @Value("${app.sharding.enabled:false}") boolean sharded) {
+        // 샤딩 모드의 content / count 는 다시 queryExecutor 로 샤드마다 fan-out 하므로, 같은 고정 풀에서 페이지 작업이
+        // 샤드 작업을 기다리다 풀이 바닥나면 서로 기다리며 멈춘다. 샤딩 모드의 searchPageComplex 는 이미 샤드별로 동시에 읽는다
+        if (parallel && sharded) {
+            throw new IllegalStateException("app.parallel-page.enabled cannot be combined with app.sharding.enabled");
+        }
+        this.memberRepository = memberRepository;
+        this.queryExecutor = queryExecutor;
+        this.parallel = parallel;
+        this.countTimeout = countTimeout;
+        this.contentTx = readOnly(transactionManager);
+        this.countTx = readOnly(transactionManager);
+        // 기다림을 멈춘 뒤에도 DB 에서 count 가 계속 돌지 않도록 문장 타임아웃도 건다 (초 단위 올림)
+        this.countTx.setTimeout((int) Math.max(1, (countTimeout.toMillis() + 999) / 1000));
+    }
+
+    public Page<MemberTeamDto> searchPage(MemberSearchCondition condition, Pageable pageable) {
+        if (!parallel) {
+            return memberRepository.searchPageComplex(condition, pageable);
+        }
+
+        CompletableFuture<List<MemberTeamDto>> content = CompletableFuture.supplyAsync(
+                () -> contentTx.execute(status -> memberRepository.searchPageContent(condition, pageable)), queryExecutor);
+        CompletableFuture<Long> count = CompletableFuture.supplyAsync(
+                () -> countTx.execute(status -> memberRepository.searchCount(condition)), queryExecutor);
+
+        List<MemberTeamDto> rows = join(content);
+        // 마지막 페이지면 total 을 바로 알 수 있으므로 count 를 기다리지 않는다 (PageableExecutionUtils 와 같은 규칙)
+        if (rows.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !rows.isEmpty())) {
+            count.cancel(true);
+            return new PageImpl<>(rows, pageable, pageable.getOffset() + rows.size());
+        }
+        try {
+            return new PageImpl<>(rows, pageable, count.get(countTimeout.toMillis(), TimeUnit.MILLISECONDS));
+        } catch (TimeoutException e) {
+            count.cancel(true);
+            log.debug("count timed out after {}, returning a lower bound", countTimeout);
+            return new LowerBoundPage<>(rows, pageable, pageable.getOffset() + rows.size() + (rows.isEmpty() ? 0 : 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private RuntimeException rethrow(ExecutionException e) {
+        return e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+    }
+
+    private static TransactionTemplate readOnly(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+}
@@ -0,0 +1,76 @@
+package com.bhkim.querydsl.admission;
+
+import com.bhkim.querydsl.admission.AdaptiveConcurrencyLimiter.Lane;
+import com.bhkim.querydsl.admission.AdaptiveConcurrencyLimiter.Permit;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 한도 조절 규칙만 확인한다. 실제 엔드포인트를 거친 429 / 503 은 MemberControllerAdmissionTest.
+ */
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void 타임아웃으로_끝난_요청은_한도를_줄이고_minLimit_아래로는_내리지_않는다() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 8, 10, 1.0, 0);
+
+        //when
+        limiter.tryAcquire(Lane.INDEXED, 0).dropped();
+        int afterOne = limiter.limit();
+        for (int i = 0; i < 5; i++) {
+            limiter.tryAcquire(Lane.INDEXED, 0).dropped();
+        }
+
+        //then
+        assertThat(afterOne).isEqualTo(9);
+        assertThat(limiter.limit()).isEqualTo(8);
+        assertThat(limiter.inflight()).isZero();
+        assertThat(limiter.dropped(Lane.INDEXED)).isEqualTo(6);
+    }
+
+    @Test
+    void 지연이_늘면_한도를_줄이고_측정하지_않는_완료는_한도를_바꾸지_않는다() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 2, 10, 1.0, 0);
+        limiter.tryAcquire(Lane.INDEXED, 0).release();
+
+        //when
+        Permit slow = limiter.tryAcquire(Lane.INDEXED, 0);
+        Thread.sleep(50);
+        slow.release();
+        int afterSlow = limiter.limit();
+        Permit export = limiter.tryAcquire(Lane.SCAN, 0);
+        Thread.sleep(50);
+        export.releaseUnmeasured();
+
+        //then
+        assertThat(afterSlow).isEqualTo(9);
+        assertThat(limiter.limit()).isEqualTo(9);
+    }
+
+    @Test
+    void 스캔은_한도의_일부만_쓰고_인덱스_조회는_들어간다() throws Exception {
+        //given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 2, 4, 0.5, 10);
+        Permit scan1 = limiter.tryAcquire(Lane.SCAN, 0);
+        Permit scan2 = limiter.tryAcquire(Lane.SCAN, 0);
+
+        //when
+        Permit scan3 = limiter.tryAcquire(Lane.SCAN, 0);
+        Permit indexed1 = limiter.tryAcquire(Lane.INDEXED, 0);
+        Permit indexed2 = limiter.tryAcquire(Lane.INDEXED, 0);
+        Permit indexed3 = limiter.tryAcquire(Lane.INDEXED, 0);
+
+        //then
+        assertThat(scan1).isNotNull();
+        assertThat(scan2).isNotNull();
+        assertThat(scan3).isNull();
+        assertThat(indexed1).isNotNull();
+        assertThat(indexed2).isNotNull();
+        assertThat(indexed3).as("전체 한도 초과").isNull();
+        assertThat(limiter.rejected(Lane.SCAN)).isEqualTo(1);
+        assertThat(limiter.admitted(Lane.INDEXED)).isEqualTo(2);
+    }
+}
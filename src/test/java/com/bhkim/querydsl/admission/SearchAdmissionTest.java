@@ -0,0 +1,40 @@
+package com.bhkim.querydsl.admission;
+
+import com.bhkim.querydsl.admission.AdaptiveConcurrencyLimiter.Lane;
+import com.bhkim.querydsl.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.transaction.TransactionTimedOutException;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchAdmissionTest {
+
+    @Test
+    void 쿼리_타임아웃과_트랜잭션_타임아웃을_모두_dropped_로_센다() {
+        //given
+        AdmissionProperties properties = new AdmissionProperties(true, 10, 2, 10, 0.5, 0,
+                Duration.ofMillis(100), Duration.ofSeconds(5), Duration.ofMinutes(5));
+        SearchAdmission admission = new SearchAdmission(properties, 10);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        admission.bindTo(registry);
+
+        //when
+        assertThatThrownBy(() -> admission.call(Lane.INDEXED, null, () -> {
+            throw new QueryTimeoutException("query");
+        })).isInstanceOf(QueryTimeoutException.class);
+        assertThatThrownBy(() -> admission.call(Lane.INDEXED, null, () -> {
+            throw new TransactionTimedOutException("tx");
+        })).isInstanceOf(TransactionTimedOutException.class);
+
+        //then
+        double dropped = registry.get("member.search.admission").tags("lane", "indexed", "result", "dropped")
+                .functionCounter().count();
+        assertThat(dropped).isEqualTo(2);
+        assertThat(registry.get("member.search.admission.limit").gauge().value()).isEqualTo(8);
+    }
+}
@@ -0,0 +1,120 @@
+package com.bhkim.querydsl.config;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.repository.MemberRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 두 개의 H2 인메모리 DB 를 primary / replica 로 쓴다. 복제는 SCRIPT / RUNSCRIPT 로 흉내 낸다.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.jdbc-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "app.datasource.replica.username=sa"})
+class ReadWriteRoutingDataSourceTest {
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    DataSource replica;
+
+    @BeforeEach
+    void 스키마_복제() throws Exception {
+        replicate();
+    }
+
+    @AfterEach
+    void 정리() {
+        JdbcTemplate primaryJdbc = new JdbcTemplate(primary);
+        primaryJdbc.update("delete from member");
+        primaryJdbc.update("delete from team");
+    }
+
+    @Test
+    void 읽기_전용_조회는_replica_로_간다() throws Exception {
+        //given
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> em.persist(new Member("written", 10)));
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("written");
+
+        //when
+        int beforeReplication = memberRepository.search(condition).size();
+        replicate();
+        int afterReplication = memberRepository.search(condition).size();
+
+        //then
+        assertThat(beforeReplication).isZero();
+        assertThat(afterReplication).isEqualTo(1);
+    }
+
+    @Test
+    void 읽기_전용_트랜잭션은_flush_하지_않는다() throws Exception {
+        //given
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            em.persist(new Team("teamA"));
+            em.persist(new Member("written", 10));
+        });
+        replicate();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        //when
+        readOnly.executeWithoutResult(status -> {
+            Session session = em.unwrap(Session.class);
+            assertThat(session.getHibernateFlushMode()).isEqualTo(FlushMode.MANUAL);
+            assertThat(session.isDefaultReadOnly()).isTrue();
+
+            Member member = em.createQuery("select m from Member m where m.username = 'written'", Member.class)
+                    .getSingleResult();
+            assertThat(session.isReadOnly(member)).isTrue();
+            member.changeTeam(em.createQuery("select t from Team t", Team.class).getSingleResult());
+        });
+
+        //then
+        Long teamId = new JdbcTemplate(primary).queryForObject("select team_id from member where username = 'written'", Long.class);
+        assertThat(teamId).isNull();
+    }
+
+    private void replicate() throws Exception {
+        Path script = Files.createTempFile("replica", ".sql");
+        try {
+            new JdbcTemplate(primary).execute("script to '" + script + "'");
+            JdbcTemplate replicaJdbc = new JdbcTemplate(replica);
+            replicaJdbc.execute("drop all objects");
+            replicaJdbc.execute("runscript from '" + script + "'");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+}
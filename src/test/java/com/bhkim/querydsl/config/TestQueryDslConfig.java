@@ -1,14 +1,26 @@
 package com.bhkim.querydsl.config;
 
+import com.bhkim.querydsl.admission.DeadlineJPAQueryFactory;
+import com.bhkim.querydsl.event.OutboxWriter;
+import com.bhkim.querydsl.repository.MemberCountCache;
+import com.bhkim.querydsl.repository.MemberSearchIndex;
+import com.bhkim.querydsl.repository.MemberSearchPredicates;
+import com.bhkim.querydsl.repository.MemberSearchQueryCache;
+import com.bhkim.querydsl.repository.MemberSearchResultCache;
+import com.bhkim.querydsl.repository.TeamNameCache;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import jakarta.persistence.EntityManager;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 
 @TestConfiguration
+@Import({MemberCountCache.class, MemberSearchQueryCache.class, MemberSearchIndex.class,
+        MemberSearchPredicates.class, MemberSearchResultCache.class, TeamNameCache.class,
+        OutboxWriter.class, QueryExecutorConfig.class})
 public class TestQueryDslConfig {
     @Bean
     public JPAQueryFactory jpaQueryFactory(EntityManager em) {
-        return new JPAQueryFactory(em);
+        return new DeadlineJPAQueryFactory(em);
     }
 }
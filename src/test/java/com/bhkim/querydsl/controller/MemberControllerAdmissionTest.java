@@ -0,0 +1,239 @@
+package com.bhkim.querydsl.controller;
+
+import com.bhkim.querydsl.admission.SearchAdmission;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.p6spy.engine.common.StatementInformation;
+import com.p6spy.engine.event.SimpleJdbcEventListener;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 실제 엔드포인트를 SearchAdmission 으로 거쳐 429 / 503 과 쿼리 타임아웃을 확인한다.
+ * 한도는 1, 대기열은 0 이라 먼저 들어간 요청이 끝나기 전의 요청은 바로 거절된다.
+ * DB 가 느린 상황은 p6spy 리스너로 문장 실행 직전에 멈추거나 늦춰서 만든다.
+ */
+@SpringBootTest(properties = {
+        "app.multi-get.chunk-size=4",
+        "app.admission.initial-limit=1",
+        "app.admission.min-limit=1",
+        "app.admission.max-limit=1",
+        "app.admission.max-queue=0"})
+@AutoConfigureMockMvc
+class MemberControllerAdmissionTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    SlowDatabase slowDatabase;
+
+    @BeforeEach
+    void 멤버_생성() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    void 정리() {
+        slowDatabase.reset();
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void 한도가_차_있으면_통계_요청은_429_와_Retry_After() throws Exception {
+        //given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        slowDatabase.onFirst(sql -> sql.contains("group by"), () -> {
+            entered.countDown();
+            await(gate);
+        });
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> statusOf(get("/v1/members/stats")));
+        assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+
+        //when
+        MvcResult rejectedStats;
+        int rejectedExport;
+        try {
+            rejectedStats = mockMvc.perform(get("/v1/members/stats")).andReturn();
+            rejectedExport = statusOf(get("/v1/members/export"));
+        } finally {
+            gate.countDown();
+        }
+
+        //then
+        assertThat(rejectedStats.getResponse().getStatus()).isEqualTo(429);
+        assertThat(rejectedStats.getResponse().getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(rejectedExport).isEqualTo(429);
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(200);
+        assertThat(statusOf(get("/v1/members/stats"))).as("자리가 반납됐다").isEqualTo(200);
+    }
+
+    @Test
+    void 첫_쿼리가_마감을_다_쓰면_다음_쿼리를_보내지_않고_503() throws Exception {
+        //given
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        slowDatabase.onFirst(sql -> true, () -> sleep(700));
+        slowDatabase.record(statements);
+
+        //when
+        mockMvc.perform(get("/v1/members/page").param("size", "2")
+                        .header(SearchAdmission.DEADLINE_HEADER, "500"))
+                .andExpect(status().isServiceUnavailable());
+
+        //then
+        assertThat(statements).as("content 만 보내고 count 는 보내지 않았다").hasSize(1);
+        assertThat(statusOf(get("/v1/members/page").param("size", "2"))).as("자리가 반납됐다").isEqualTo(200);
+    }
+
+    @Test
+    void 실행기_스레드에서_도는_id_청크에도_마감이_쿼리_타임아웃으로_걸린다() throws Exception {
+        //given
+        List<Long> ids = em.createQuery("select m.id from Member m", Long.class).getResultList();
+        Map<String, Integer> timeouts = new ConcurrentHashMap<>();
+        slowDatabase.timeouts(timeouts);
+
+        //when
+        mockMvc.perform(post("/v1/members/by-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(ids))
+                        .header(SearchAdmission.DEADLINE_HEADER, "3000"))
+                .andExpect(status().isOk());
+
+        //then
+        assertThat(timeouts.keySet()).as("첫 청크는 요청 스레드, 나머지는 실행기").anyMatch(thread -> thread.startsWith("query-"));
+        assertThat(timeouts.values()).allMatch(seconds -> seconds >= 1 && seconds <= 3);
+    }
+
+    private int statusOf(RequestBuilder request) {
+        try {
+            return mockMvc.perform(request).andReturn().getResponse().getStatus();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @TestConfiguration
+    static class SlowDatabaseConfig {
+        @Bean
+        SlowDatabase slowDatabase() {
+            return new SlowDatabase();
+        }
+    }
+
+    /**
+     * 문장 실행 직전에 끼어드는 p6spy 리스너. 조건에 맞는 첫 문장에서 action 을 실행하고,
+     * 켜 두면 member 를 읽는 문장의 SQL 과 JDBC 쿼리 타임아웃(초)을 스레드별로 남긴다.
+     */
+    static class SlowDatabase extends SimpleJdbcEventListener {
+        private final AtomicReference<Predicate<String>> match = new AtomicReference<>();
+        private volatile Runnable action;
+        private volatile List<String> statements;
+        private volatile Map<String, Integer> timeouts;
+
+        void onFirst(Predicate<String> match, Runnable action) {
+            this.action = action;
+            this.match.set(match);
+        }
+
+        void record(List<String> statements) {
+            this.statements = statements;
+        }
+
+        void timeouts(Map<String, Integer> timeouts) {
+            this.timeouts = timeouts;
+        }
+
+        void reset() {
+            match.set(null);
+            statements = null;
+            timeouts = null;
+        }
+
+        @Override
+        public void onBeforeAnyExecute(StatementInformation statementInformation) {
+            String sql = statementInformation.getSqlWithValues().toLowerCase();
+            if (!sql.contains("member")) {
+                return;
+            }
+            List<String> recorded = statements;
+            if (recorded != null) {
+                recorded.add(sql);
+            }
+            Map<String, Integer> recordedTimeouts = timeouts;
+            if (recordedTimeouts != null) {
+                try {
+                    recordedTimeouts.put(Thread.currentThread().getName(), statementInformation.getStatement().getQueryTimeout());
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            Predicate<String> current = match.get();
+            if (current != null && current.test(sql) && match.compareAndSet(current, null)) {
+                action.run();
+            }
+        }
+    }
+}
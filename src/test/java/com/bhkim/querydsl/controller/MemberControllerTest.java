@@ -0,0 +1,155 @@
+package com.bhkim.querydsl.controller;
+
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.support.QueryCounter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 데이터 버전은 커밋된 변경으로 올라가므로 데이터를 커밋하고 테스트 후 지운다.
+ */
+@SpringBootTest(properties = "app.multi-get.chunk-size=4")
+@AutoConfigureMockMvc
+class MemberControllerTest {
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void 멤버_생성() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    void 정리() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void 변경이_없으면_조회_없이_304() throws Exception {
+        //given
+        String etag = mockMvc.perform(get("/v1/members").param("teamName", "teamA"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        //when
+        long statements = QueryCounter.count(em, () -> perform(etag, 304));
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("late", 99)));
+
+        //then
+        assertThat(etag).isNotBlank();
+        assertThat(statements).isZero();
+        perform(etag, 200);
+    }
+
+    @Test
+    void Accept_에_따라_CBOR_Smile_로_응답한다() throws Exception {
+        //when
+        MvcResult json = mockMvc.perform(get("/v1/members")).andReturn();
+        MvcResult cbor = mockMvc.perform(get("/v1/members").header(HttpHeaders.ACCEPT, "application/cbor")).andReturn();
+        MvcResult smile = mockMvc.perform(get("/v1/members").header(HttpHeaders.ACCEPT, "application/x-jackson-smile")).andReturn();
+
+        //then
+        assertThat(cbor.getResponse().getContentType()).isEqualTo("application/cbor");
+        assertThat(smile.getResponse().getContentType()).isEqualTo("application/x-jackson-smile");
+        JsonNode expected = new ObjectMapper().readTree(json.getResponse().getContentAsByteArray());
+        assertThat(new ObjectMapper(new CBORFactory()).readTree(cbor.getResponse().getContentAsByteArray())).isEqualTo(expected);
+        assertThat(new ObjectMapper(new SmileFactory()).readTree(smile.getResponse().getContentAsByteArray())).isEqualTo(expected);
+        assertThat(cbor.getResponse().getContentAsByteArray().length).isLessThan(json.getResponse().getContentAsByteArray().length);
+        assertThat(cbor.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(json.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void id_목록을_청크로_나눠_조회한다() throws Exception {
+        //given
+        List<Long> ids = new ArrayList<>(em.createQuery("select m.id from Member m order by m.id", Long.class).getResultList());
+        Collections.reverse(ids);
+        ids.add(999_999L);
+
+        //when
+        MvcResult result = mockMvc.perform(post("/v1/members/by-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(ids)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        //then
+        JsonNode members = new ObjectMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertThat(members).hasSize(10);
+        assertThat(members).extracting(member -> member.get("username").asText())
+                .containsExactly("member9", "member8", "member7", "member6", "member5",
+                        "member4", "member3", "member2", "member1", "member0");
+        mockMvc.perform(post("/v1/members/by-ids")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(new ObjectMapper().writeValueAsString(new long[10_001])))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void CSV_내보내기는_CR_이_들어간_값도_따옴표로_감싼다() throws Exception {
+        //given
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("cr\rname", 50));
+            em.persist(new Member("comma,name", 51));
+        });
+
+        //when
+        String csv = mockMvc.perform(get("/v1/members/export").param("format", "CSV").param("ageGoe", "50"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        //then
+        assertThat(csv.split("\n")).hasSize(3).startsWith("memberId,username,age,teamId,teamName");
+        assertThat(csv).contains(",\"cr\rname\",50,,").contains(",\"comma,name\",51,,");
+    }
+
+    private void perform(String etag, int expectedStatus) {
+        try {
+            mockMvc.perform(get("/v1/members").param("teamName", "teamA").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().is(expectedStatus));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.bhkim.querydsl.event;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.OutboxEvent;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent.ChangeType;
+import com.bhkim.querydsl.repository.MemberRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * 스케줄 발행은 사실상 끄고(1h) publishBatch() 를 직접 부른다.
+ */
+@SpringBootTest(properties = {"app.outbox.enabled=true", "app.outbox.poll-interval=1h"})
+class OutboxPublisherTest {
+
+    @Autowired
+    OutboxPublisher publisher;
+
+    @Autowired
+    InMemoryOutboxSink sink;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void 정리() {
+        jdbcTemplate.update("delete from member");
+        jdbcTemplate.update("delete from team");
+        jdbcTemplate.update("delete from outbox_event");
+        sink.clear();
+    }
+
+    @Test
+    void 커밋된_변경만_순서대로_발행된다() throws Exception {
+        //given
+        Long memberId = transactionTemplate.execute(status -> {
+            Member member = new Member("member1", 10);
+            em.persist(member);
+            return member.getId();
+        });
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            em.find(Member.class, memberId).changeTeam(team);
+            return team.getId();
+        });
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("rolledBack", 20));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        //when
+        int sent = publisher.publishBatch();
+
+        //then
+        assertThat(sent).isEqualTo(3);
+        assertThat(sink.received())
+                .extracting(OutboxEvent::getAggregateType, OutboxEvent::getAggregateId, OutboxEvent::getChangeType)
+                .containsExactly(
+                        tuple("Member", memberId, ChangeType.INSERT),
+                        tuple("Team", teamId, ChangeType.INSERT),
+                        tuple("Member", memberId, ChangeType.UPDATE));
+        assertThat(sink.received().get(2).getPayload())
+                .isEqualTo("{\"username\":\"member1\",\"age\":10,\"teamId\":" + teamId + "}");
+        assertThat(publisher.publishBatch()).isZero();
+    }
+
+    @Test
+    void 트랜잭션_안의_이벤트는_커밋_직전에_한_번에_쓴다() throws Exception {
+        //when
+        Long pendingBeforeCommit = transactionTemplate.execute(status -> {
+            for (int i = 0; i < 3; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+            em.flush();
+            return jdbcTemplate.queryForObject("select count(*) from outbox_event", Long.class);
+        });
+
+        //then
+        assertThat(pendingBeforeCommit).isZero();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from outbox_event", Long.class)).isEqualTo(3);
+    }
+
+    @Test
+    void 벌크_연산은_BULK_이벤트_하나를_남긴다() throws Exception {
+        //given
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("member" + i, i));
+            }
+        });
+        publisher.publishBatch();
+        sink.clear();
+
+        //when
+        MemberSearchCondition everyone = new MemberSearchCondition();
+        everyone.setAgeGoe(0);
+        memberRepository.bulkAddAge(everyone, 1);
+        publisher.publishBatch();
+
+        //then
+        assertThat(sink.received())
+                .extracting(OutboxEvent::getAggregateType, OutboxEvent::getAggregateId, OutboxEvent::getChangeType)
+                .containsExactly(tuple("Member", null, ChangeType.BULK));
+    }
+}
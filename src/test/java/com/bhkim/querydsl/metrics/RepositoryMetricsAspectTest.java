@@ -0,0 +1,100 @@
+package com.bhkim.querydsl.metrics;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.repository.MemberRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = {"app.query-metrics.slow-threshold=0ms", "app.multi-get.chunk-size=2"})
+@Transactional
+class RepositoryMetricsAspectTest {
+
+    @Autowired
+    MemberRepository repository;
+
+    @Autowired
+    MeterRegistry registry;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void 메서드_조건조합별_측정() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.flush();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+        condition.setAgeLoe(15);
+
+        //when
+        repository.searchByBuilder(condition);
+
+        //then
+        Timer timer = registry.find("querydsl.repository.query")
+                .tags("method", "searchByBuilder", "shape", "1100")
+                .timer();
+        DistributionSummary rows = registry.find("querydsl.repository.rows")
+                .tags("method", "searchByBuilder", "shape", "1100")
+                .summary();
+        DistributionSummary statements = registry.find("querydsl.repository.statements")
+                .tags("method", "searchByBuilder", "shape", "1100")
+                .summary();
+
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(rows.totalAmount()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void queryExecutor_에서_실행한_문장도_센다() throws Exception {
+        //given
+        List<Long> ids = transactionTemplate.execute(status -> {
+            List<Long> persisted = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                Member member = new Member("member" + i, i);
+                em.persist(member);
+                persisted.add(member.getId());
+            }
+            return persisted;
+        });
+
+        try {
+            //when
+            repository.findMemberTeamDtosByIds(ids);
+
+            //then
+            DistributionSummary statements = registry.find("querydsl.repository.statements")
+                    .tags("method", "findMemberTeamDtosByIds")
+                    .summary();
+            // 청크 2 + 2 + 1, 뒤의 두 청크는 queryExecutor 스레드에서 실행된다
+            assertThat(statements.totalAmount()).isEqualTo(3);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Member").executeUpdate());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MemberCountCacheTest {
+
+    @Test
+    void 조회_중에_비워지면_결과를_캐시하지_않는다() throws Exception {
+        //given
+        MemberCountCache countCache = new MemberCountCache(true, 100, Duration.ofMinutes(1));
+        MemberSearchKey key = new MemberSearchKey("member1", null, null, null);
+        AtomicInteger loads = new AtomicInteger();
+
+        //when
+        long stale = countCache.count(key, () -> {
+            loads.incrementAndGet();
+            countCache.onChange(EntityChangedEvent.bulk(Member.class));
+            return 1;
+        });
+        long fresh = countCache.count(key, () -> {
+            loads.incrementAndGet();
+            return 2;
+        });
+        long cached = countCache.count(key, () -> {
+            loads.incrementAndGet();
+            return 3;
+        });
+
+        //then
+        assertThat(stale).isEqualTo(1);
+        assertThat(fresh).isEqualTo(2);
+        assertThat(cached).isEqualTo(2);
+        assertThat(loads).hasValue(2);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.config.TestQueryDslConfig;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.repository.MemberIndexAdvisor.ShapePlan;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({TestQueryDslConfig.class, MemberIndexAdvisor.class})
+class MemberIndexAdvisorTest {
+
+    @Autowired
+    MemberIndexAdvisor advisor;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void 조건이_있는_조합은_인덱스를_탄다() throws Exception {
+        //given
+        jdbcTemplate.update("insert into team (team_id, name) select x, 'team' || x from system_range(1, 50)");
+        jdbcTemplate.update("insert into member (member_id, username, age, team_id) "
+                + "select x, 'member' || x, mod(x, 100), mod(x, 50) + 1 from system_range(1, 5000)");
+        jdbcTemplate.execute("analyze");
+
+        //when
+        List<ShapePlan> plans = advisor.explainAll();
+
+        //then
+        assertThat(plans).hasSize(MemberSearchKey.SHAPE_COUNT);
+        // 팀 캐시가 켜져 있으므로 팀 조건은 이름 조인이 아니라 member.team_id 비교로 나간다
+        assertThat(plans.get(MemberSearchKey.TEAM_NAME).sql()).doesNotContainIgnoringCase("t1_0.name=");
+        assertThat(plans).filteredOn(ShapePlan::fullScan)
+                .extracting(ShapePlan::shape)
+                .containsExactly(0);
+    }
+
+    @Test
+    void username_prefix_범위_조건은_인덱스를_탄다() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix("member12");
+
+        //when
+        ShapePlan plan = advisor.explain(condition);
+
+        //then
+        assertThat(plan.sql()).containsIgnoringCase("like");
+        assertThat(plan.fullScan()).as(plan.plan()).isFalse();
+    }
+
+    @Test
+    void 별칭이_달라도_MEMBER_접근_방식을_읽는다() {
+        //given
+        String indexed = "SELECT ...\nFROM \"PUBLIC\".\"MEMBER\" \"M2_0\"\n    /* PUBLIC.IDX_MEMBER_USERNAME: USERNAME = ?1 */";
+        String scanned = "SELECT ...\nFROM \"PUBLIC\".\"MEMBER\" \"M3_1\"\n    /* PUBLIC.MEMBER.tableScan */";
+
+        //when
+        boolean indexedFullScan = advisor.isFullScan(indexed);
+        boolean scannedFullScan = advisor.isFullScan(scanned);
+
+        //then
+        assertThat(indexedFullScan).isFalse();
+        assertThat(scannedFullScan).isTrue();
+    }
+}
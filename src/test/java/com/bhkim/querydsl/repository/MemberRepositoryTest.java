@@ -1,21 +1,36 @@
 package com.bhkim.querydsl.repository;
 
 import com.bhkim.querydsl.config.TestQueryDslConfig;
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.MemberCursor;
 import com.bhkim.querydsl.dto.MemberSearchCondition;
 import com.bhkim.querydsl.dto.MemberTeamDto;
 import com.bhkim.querydsl.entity.Member;
 import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.support.QueryCounter;
+import com.bhkim.querydsl.support.SqlRecorder;
 import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
-@DataJpaTest
+@DataJpaTest(properties = {SqlRecorder.PROPERTY, "app.multi-get.chunk-size=4"})
 @Import(TestQueryDslConfig.class)
 class MemberRepositoryTest {
 
@@ -95,4 +110,354 @@ class MemberRepositoryTest {
 
         //then
     }
-}
\ No newline at end of file
+
+    @Test
+    void 커서_페이징_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 40, teamA));
+        em.persist(new Member("member2", 30, teamA));
+        em.persist(new Member("member3", 20, teamB));
+        em.persist(new Member("member4", 10, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //when
+        CursorSlice<MemberTeamDto> first = repository.searchSlice(condition, MemberCursor.first(MemberCursor.Order.AGE), 3);
+        CursorSlice<MemberTeamDto> second = repository.searchSlice(condition, MemberCursor.decode(first.getNextCursor()), 3);
+        CursorSlice<MemberTeamDto> back = repository.searchSlice(condition, MemberCursor.decode(second.getPrevCursor()), 3);
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+        assertThat(first.isHasNext()).isTrue();
+        assertThat(first.isHasPrev()).isFalse();
+        assertThat(second.getContent()).extracting("username").containsExactly("member1");
+        assertThat(second.isHasNext()).isFalse();
+        assertThat(back.getContent()).extracting("username").containsExactly("member4", "member3", "member2");
+        assertThat(back.isHasPrev()).isFalse();
+        // 경계 키가 빠진 토큰은 400 으로 거절한다
+        String noAge = Base64.getUrlEncoder().withoutPadding().encodeToString("AGE:NEXT::5".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> MemberCursor.decode(noAge)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void 페이징_카운트_캐시_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, teamB));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //when
+        Page<MemberTeamDto> before = repository.searchPageComplex(condition, PageRequest.of(0, 1));
+        em.persist(new Member("member5", 50, teamA));
+        Page<MemberTeamDto> after = repository.searchPageComplex(condition, PageRequest.of(0, 1));
+        Slice<MemberTeamDto> slice = repository.searchSliceNoCount(condition, PageRequest.of(1, 2));
+
+        //then
+        assertThat(before.getTotalElements()).isEqualTo(2);
+        assertThat(after.getTotalElements()).isEqualTo(3);
+        assertThat(slice.getContent()).extracting("username").containsExactly("member5");
+        assertThat(slice.hasNext()).isFalse();
+    }
+
+    @Test
+    void 스트림_검색_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(5);
+
+        //when
+        List<String> usernames;
+        try (Stream<MemberTeamDto> stream = repository.stream(condition)) {
+            usernames = stream.map(MemberTeamDto::username).toList();
+        }
+
+        //then
+        assertThat(usernames).containsExactly("member5", "member6", "member7", "member8", "member9");
+    }
+
+    @Test
+    void 쿼리_캐시_결과_일치_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 20; i++) {
+            em.persist(new Member("member" + (i % 5), i, i % 2 == 0 ? teamA : teamB));
+        }
+
+        //when, then
+        for (int shape = 0; shape < MemberSearchKey.SHAPE_COUNT; shape++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername((shape & MemberSearchKey.USERNAME) != 0 ? "member2" : null);
+            condition.setTeamName((shape & MemberSearchKey.TEAM_NAME) != 0 ? "teamA" : null);
+            condition.setAgeGoe((shape & MemberSearchKey.AGE_GOE) != 0 ? 5 : null);
+            condition.setAgeLoe((shape & MemberSearchKey.AGE_LOE) != 0 ? 15 : null);
+
+            assertThat(repository.search(condition))
+                    .containsExactlyInAnyOrderElementsOf(repository.searchByBuilder(condition));
+        }
+    }
+
+    @Test
+    void 팀_그래프_조회_N플러스1_테스트() throws Exception {
+        //given
+        for (int t = 0; t < 5; t++) {
+            Team team = new Team("team" + t);
+            em.persist(team);
+            for (int i = 0; i < 4; i++) {
+                em.persist(new Member("member" + t + i, i * 10, team));
+            }
+        }
+        em.flush();
+        em.clear();
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        //when, then
+        QueryCounter.assertMaxStatements(em, 1, () ->
+                repository.findAllWithTeam(condition).forEach(m -> m.getTeam().getName()));
+        em.clear();
+
+        QueryCounter.assertMaxStatements(em, 2, () ->
+                repository.findAllWithTeamInBatch(condition).forEach(m -> m.getTeam().getName()));
+        em.clear();
+
+        // Team.members 는 @BatchSize 로 팀 수와 무관하게 한 번에 초기화된다
+        QueryCounter.assertMaxStatements(em, 2, () ->
+                em.createQuery("select t from Team t", Team.class).getResultList()
+                        .forEach(t -> t.getMembers().size()));
+        em.clear();
+
+        assertThat(QueryCounter.count(em, () ->
+                em.createQuery("select m from Member m", Member.class).getResultList()
+                        .forEach(m -> m.getTeam().getName())))
+                .as("지연 로딩은 팀 수만큼 추가 조회한다")
+                .isGreaterThan(2);
+    }
+
+    @Test
+    void 팀_이름_목록은_한_번의_조회로_풀고_없는_이름도_캐시한다() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamB));
+        em.flush();
+
+        MemberSearchCondition withMissing = new MemberSearchCondition();
+        withMissing.setTeamNames(List.of("teamA", "teamB", "teamX", "teamY"));
+        MemberSearchCondition resolved = new MemberSearchCondition();
+        resolved.setTeamNames(List.of("teamA", "teamB"));
+
+        //when
+        List<String> cold = SqlRecorder.record(() -> repository.search(withMissing));
+        List<String> warmMissing = SqlRecorder.record(() -> repository.search(withMissing));
+        List<String> warmResolved = SqlRecorder.record(() -> repository.search(resolved));
+
+        //then
+        assertThat(cold).as("이름 조회 1 + 검색 1").hasSize(2);
+        assertThat(warmMissing).as("없는 이름도 캐시된다").hasSize(1);
+        assertThat(warmResolved).singleElement().asString().doesNotContain(".name in");
+        assertThat(repository.search(withMissing)).extracting("username").containsExactly("member1", "member2");
+    }
+
+    @Test
+    void 팀_이름_변경_후_검색_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        MemberSearchCondition before = new MemberSearchCondition();
+        before.setTeamName("teamA");
+        assertThat(repository.search(before)).hasSize(2);
+
+        //when
+        teamA.changeName("teamZ");
+        em.flush();
+
+        //then
+        MemberSearchCondition after = new MemberSearchCondition();
+        after.setTeamName("teamZ");
+        assertThat(repository.search(before)).isEmpty();
+        assertThat(repository.searchByBuilder(before)).isEmpty();
+        assertThat(repository.search(after)).extracting("username").containsExactly("member1", "member2");
+        assertThat(repository.searchPageComplex(after, PageRequest.of(0, 1)).getTotalElements()).isEqualTo(2);
+    }
+
+    @Test
+    void 벌크_팀_변경_나이_증가_삭제_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        Member member1 = new Member("member1", 31, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 35, teamA));
+        em.persist(new Member("member3", 40, teamA));
+        em.persist(new Member("member4", 50, teamB));
+
+        MemberSearchCondition olderInTeamA = new MemberSearchCondition();
+        olderInTeamA.setTeamName("teamA");
+        olderInTeamA.setAgeGoe(30);
+
+        //when
+        // 아직 flush 되지 않은 insert 도 벌크 문장보다 먼저 반영되어야 한다
+        long moved = repository.bulkChangeTeam(olderInTeamA, teamB.getId());
+        MemberSearchCondition teamBCondition = new MemberSearchCondition();
+        teamBCondition.setTeamName("teamB");
+        long aged = repository.bulkAddAge(teamBCondition, 1);
+        MemberSearchCondition old = new MemberSearchCondition();
+        old.setAgeGoe(51);
+        long deleted = repository.bulkDelete(old);
+
+        //then
+        assertThat(moved).isEqualTo(3);
+        assertThat(aged).isEqualTo(4);
+        assertThat(deleted).isEqualTo(1);
+        assertThat(em.contains(member1)).isFalse();
+        Member reloaded = em.find(Member.class, member1.getId());
+        assertThat(reloaded.getAge()).isEqualTo(32);
+        assertThat(reloaded.getTeam().getName()).isEqualTo("teamB");
+        assertThat(em.find(Team.class, teamA.getId()).getMembers()).isEmpty();
+        assertThat(repository.search(teamBCondition)).extracting("username")
+                .containsExactly("member1", "member2", "member3");
+        // 조건 없는 벌크 연산은 거절하고, 팀 id 가 null 이면 팀에서 뺀다
+        assertThatThrownBy(() -> repository.bulkDelete(new MemberSearchCondition()))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class);
+        MemberSearchCondition member3 = new MemberSearchCondition();
+        member3.setUsername("member3");
+        assertThat(repository.bulkChangeTeam(member3, null)).isEqualTo(1);
+        assertThat(repository.search(member3)).extracting("teamId").containsOnlyNulls();
+        assertThat(repository.bulkDeleteAll()).isEqualTo(3);
+    }
+
+    @Test
+    void 다중_조건_검색_정렬_테스트() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        Team teamC = new Team("teamC");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(teamC);
+        em.persist(new Member("alice", 30, teamA));
+        em.persist(new Member("albert", 20, teamB));
+        em.persist(new Member("bob", 40, teamB));
+        em.persist(new Member("alfred", 50, teamC));
+        em.persist(new Member("malik", 10, teamA));
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamNames(List.of("teamA", "teamB", " "));
+        condition.setUsernamePrefix("al");
+
+        MemberSearchCondition contains = new MemberSearchCondition();
+        contains.setUsernameContains("li");
+
+        //when
+        List<MemberTeamDto> result = repository.search(condition);
+        List<MemberTeamDto> byBuilder = repository.searchByBuilder(condition);
+        Page<MemberTeamDto> sorted = repository.searchPageComplex(condition,
+                PageRequest.of(0, 10, Sort.by(Sort.Order.desc("teamName"), Sort.Order.asc("age"))));
+        long moved = repository.bulkAddAge(condition, 1);
+
+        //then
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("alice", "albert");
+        assertThat(byBuilder).containsExactlyInAnyOrderElementsOf(result);
+        assertThat(repository.searchByBuilder(contains)).extracting("username").containsExactlyInAnyOrder("alice", "malik");
+        assertThat(sorted.getContent()).extracting("username").containsExactly("albert", "alice");
+        assertThat(sorted.getTotalElements()).isEqualTo(2);
+        assertThat(repository.search(contains)).extracting("username").containsExactlyInAnyOrder("alice", "malik");
+        assertThat(moved).isEqualTo(2);
+        assertThatThrownBy(() -> repository.searchPageComplex(condition, PageRequest.of(0, 10, Sort.by("password"))))
+                .isInstanceOf(InvalidDataAccessApiUsageException.class)
+                .hasMessageContaining("password");
+    }
+
+    @Test
+    void 요청한_필드만_조회한다() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        Member member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        //when
+        List<Map<String, Object>> sparse = new ArrayList<>();
+        List<String> sparseSql = SqlRecorder.record(() -> sparse.addAll(
+                repository.searchFields(condition, MemberField.parse(List.of("memberId", "username", "teamId")))));
+        List<String> teamSql = SqlRecorder.record(() -> repository.searchFields(condition, MemberField.parse(List.of("teamName"))));
+
+        //then
+        assertThat(sparse).hasSize(2);
+        assertThat(sparse.get(0)).containsExactly(
+                Map.entry("memberId", member1.getId()), Map.entry("username", "member1"), Map.entry("teamId", teamA.getId()));
+        assertThat(sparse.get(1)).containsEntry("teamId", null);
+        assertThat(sparseSql).singleElement().asString().doesNotContainIgnoringCase("join").doesNotContainIgnoringCase("age,");
+        assertThat(teamSql).singleElement().asString().containsIgnoringCase("left join");
+        assertThatThrownBy(() -> MemberField.parse(List.of("password")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void 여러_id_를_입력_순서대로_조회한다() throws Exception {
+        //given
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 1; i <= 8; i++) {
+            Member member = new Member("member" + i, i * 10, i % 2 == 0 ? teamA : null);
+            em.persist(member);
+            ids.add(member.getId());
+        }
+        em.flush();
+        em.clear();
+        // 팀까지 초기화된 member2 는 영속성 컨텍스트에서 바로 꺼낸다
+        em.find(Member.class, ids.get(1)).getTeam().getName();
+
+        List<Long> requested = List.of(ids.get(7), 999_999L, ids.get(1), ids.get(2), ids.get(4),
+                ids.get(0), ids.get(6), ids.get(5), ids.get(7));
+
+        //when
+        List<MemberTeamDto> result = new ArrayList<>();
+        List<String> sql = SqlRecorder.record(() -> result.addAll(repository.findMemberTeamDtosByIds(requested)));
+
+        //then
+        assertThat(result).extracting("username")
+                .containsExactly("member8", "member2", "member3", "member5", "member1", "member7", "member6");
+        assertThat(result.get(1).teamName()).isEqualTo("teamA");
+        assertThat(result.get(3).teamId()).isNull();
+        // 남은 7개는 청크 4 + 3, 3개짜리 청크는 4개로 채워 같은 SQL 을 쓴다
+        assertThat(sql).hasSize(2).allSatisfy(statement ->
+                assertThat(statement.chars().filter(c -> c == '?').count()).isEqualTo(4));
+        assertThat(repository.findMemberTeamDtosByIds(List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,190 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.event.EntityChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 인덱스는 커밋된 변경만 반영하므로 데이터를 커밋하고 테스트 후 지운다.
+ */
+@SpringBootTest(properties = "app.search-index.enabled=true")
+class MemberSearchIndexTest {
+
+    @Autowired
+    MemberSearchIndex searchIndex;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    ApplicationEventPublisher publisher;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void 멤버_생성() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("member" + i, i * 5, i % 2 == 0 ? teamA : teamB));
+            }
+            em.persist(new Member("noTeam", 30));
+        });
+    }
+
+    @AfterEach
+    void 정리() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+        publisher.publishEvent(EntityChangedEvent.bulk(Member.class));
+    }
+
+    @Test
+    void 인덱스_결과가_SQL_과_같다() throws Exception {
+        //given
+        awaitCurrent();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(20);
+        condition.setAgeLoe(60);
+
+        //when
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        //then
+        assertThat(searchIndex.verify()).isEmpty();
+        assertThat(result).isEqualTo(searchIndex.search(MemberSearchKey.of(condition)));
+        assertThat(result).extracting("username").containsExactly("member4", "member6", "member8", "member10", "member12");
+    }
+
+    @Test
+    void 커밋된_변경이_반영된다() throws Exception {
+        //given
+        awaitCurrent();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> em
+                .createQuery("select t from Team t where t.name = 'teamB'", Team.class)
+                .getSingleResult()
+                .changeName("teamC"));
+        awaitCurrent();
+
+        //then
+        assertThat(searchIndex.search(MemberSearchKey.of(condition))).hasSize(10);
+        assertThat(searchIndex.verify()).isEmpty();
+    }
+
+    @Test
+    void 회원_변경은_전체를_다시_만들지_않고_그_행만_반영한다() throws Exception {
+        //given
+        awaitCurrent();
+        double fullBefore = refreshes("full");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(1_000_000);
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            Member moved = em.createQuery("select m from Member m where m.username = 'member3'", Member.class)
+                    .getSingleResult();
+            moved.changeTeam(em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult());
+            em.persist(new Member("old", 2_000_000_000));
+        });
+        awaitCurrent();
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+
+        //then
+        assertThat(refreshes("full")).isEqualTo(fullBefore);
+        assertThat(searchIndex.search(MemberSearchKey.of(condition))).extracting("username").containsExactly("old");
+        assertThat(searchIndex.search(MemberSearchKey.of(teamA))).extracting("username").contains("member3").hasSize(11);
+        assertThat(searchIndex.verify()).isEmpty();
+    }
+
+    @Test
+    void 팀_이름_변경과_회원_삭제도_전체를_다시_만들지_않는다() throws Exception {
+        //given
+        awaitCurrent();
+        double fullBefore = refreshes("full");
+        MemberSearchCondition teamC = new MemberSearchCondition();
+        teamC.setTeamName("teamC");
+        MemberSearchCondition removed = new MemberSearchCondition();
+        removed.setUsername("member1");
+
+        //when
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("select t from Team t where t.name = 'teamB'", Team.class)
+                    .getSingleResult()
+                    .changeName("teamC");
+            em.remove(em.createQuery("select m from Member m where m.username = 'member1'", Member.class)
+                    .getSingleResult());
+        });
+        awaitCurrent();
+
+        //then
+        assertThat(refreshes("full")).isEqualTo(fullBefore);
+        assertThat(searchIndex.search(MemberSearchKey.of(teamC))).hasSize(9).extracting("teamName").containsOnly("teamC");
+        assertThat(searchIndex.search(MemberSearchKey.of(removed))).isEmpty();
+        assertThat(searchIndex.verify()).isEmpty();
+    }
+
+    @Test
+    void 읽기_쓰기_트랜잭션에서는_인덱스_대신_자기_미커밋_변경을_본다() throws Exception {
+        //given
+        awaitCurrent();
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsername("uncommitted");
+
+        //when
+        List<MemberTeamDto> result = transactionTemplate.execute(status -> {
+            em.persist(new Member("uncommitted", 77));
+            em.flush();
+            List<MemberTeamDto> found = memberRepository.search(condition);
+            status.setRollbackOnly();
+            return found;
+        });
+
+        //then
+        assertThat(result).extracting("username").containsExactly("uncommitted");
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    private double refreshes(String type) {
+        return meterRegistry.get("member.search.index.refresh").tag("type", type).functionCounter().count();
+    }
+
+    private void awaitCurrent() throws InterruptedException {
+        for (int i = 0; i < 100 && !searchIndex.isCurrent(); i++) {
+            Thread.sleep(50);
+        }
+        assertThat(searchIndex.isCurrent()).isTrue();
+    }
+}
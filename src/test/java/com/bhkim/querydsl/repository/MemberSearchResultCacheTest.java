@@ -0,0 +1,155 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.support.QueryCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 캐시는 트랜잭션 밖(또는 읽기 전용) 조회에만 적용되므로 데이터를 커밋하고 테스트 후 지운다.
+ */
+@SpringBootTest(properties = "app.search-cache.enabled=true")
+class MemberSearchResultCacheTest {
+    private static final int THREADS = 32;
+
+    @Autowired
+    MemberSearchResultCache resultCache;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void 멤버_생성() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            em.persist(teamA);
+            for (int i = 0; i < 50; i++) {
+                em.persist(new Member("member" + i, i, teamA));
+            }
+        });
+    }
+
+    @AfterEach
+    void 정리() {
+        memberRepository.bulkDeleteAll();
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("delete from Team").executeUpdate());
+    }
+
+    @Test
+    void 동시_요청은_한_번만_조회한다() throws Exception {
+        //given
+        MemberSearchKey key = new MemberSearchKey("slow", null, null, null);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        double coalescedBefore = counter("coalesced");
+
+        //when
+        List<List<MemberTeamDto>> results = runConcurrently(THREADS, () -> {
+            start.await();
+            return resultCache.get(key, () -> {
+                loads.incrementAndGet();
+                sleep(300);
+                return List.of(new MemberTeamDto(1L, "slow", 10, null, null));
+            });
+        }, start);
+
+        //then
+        assertThat(loads).hasValue(1);
+        assertThat(results).allSatisfy(result -> assertThat(result).extracting("username").containsExactly("slow"));
+        assertThat(counter("coalesced") - coalescedBefore).isPositive();
+    }
+
+    @Test
+    void 동시_검색_부하_테스트() throws Exception {
+        //given
+        List<MemberSearchCondition> conditions = new ArrayList<>();
+        for (int age = 0; age < 4; age++) {
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setAgeGoe(age * 10);
+            conditions.add(condition);
+        }
+        List<List<MemberTeamDto>> expected = conditions.stream().map(memberRepository::searchByBuilder).toList();
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger calls = new AtomicInteger();
+
+        //when
+        long statements = QueryCounter.count(em, () -> runConcurrently(THREADS, () -> {
+            start.await();
+            for (int i = 0; i < 20; i++) {
+                int index = calls.getAndIncrement() % conditions.size();
+                assertThat(memberRepository.search(conditions.get(index)))
+                        .containsExactlyInAnyOrderElementsOf(expected.get(index));
+            }
+            return null;
+        }, start));
+
+        //then
+        assertThat(calls).hasValue(THREADS * 20);
+        assertThat(statements).as("조건당 한 번만 조회").isLessThanOrEqualTo(conditions.size());
+
+        // 커밋된 쓰기는 캐시를 비운다
+        transactionTemplate.executeWithoutResult(status -> em.persist(new Member("late", 99)));
+        assertThat(memberRepository.search(conditions.get(0))).extracting("username").contains("late");
+    }
+
+    private double counter(String result) {
+        return meterRegistry.get("member.search.cache").tag("result", result).functionCounter().count();
+    }
+
+    private <T> List<T> runConcurrently(int threads, Callable<T> task, CountDownLatch start) {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<T>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(task));
+            }
+            start.countDown();
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
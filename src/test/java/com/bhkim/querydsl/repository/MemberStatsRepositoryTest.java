@@ -0,0 +1,134 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.config.TestQueryDslConfig;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.TeamStatsDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.QTeamStatsSummary;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.support.QueryCounter;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({TestQueryDslConfig.class, MemberStatsRepository.class})
+class MemberStatsRepositoryTest {
+
+    @Autowired
+    MemberStatsRepository statsRepository;
+
+    @Autowired
+    JPAQueryFactory queryFactory;
+
+    @Autowired
+    MemberSearchPredicates predicates;
+
+    @Autowired
+    ObjectProvider<ShardedMemberSearch> shardedSearch;
+
+    @Autowired
+    EntityManager em;
+
+    @BeforeEach
+    void 멤버_생성() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("a1", 5, teamA));
+        em.persist(new Member("a2", 15, teamA));
+        em.persist(new Member("a3", 19, teamA));
+        em.persist(new Member("b1", 95, teamB));
+        em.persist(new Member("b2", 120, teamB));
+        em.persist(new Member("none", 30));
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void 팀별_통계를_쿼리_한_번으로_계산한다() throws Exception {
+        //when
+        List<TeamStatsDto> stats = new ArrayList<>();
+        long statements = QueryCounter.count(em, () -> stats.addAll(statsRepository.teamStats(new MemberSearchCondition(), null)));
+
+        //then
+        assertThat(statements).isEqualTo(1);
+        assertThat(stats).extracting("teamName").containsExactly("teamA", "teamB", null);
+        TeamStatsDto teamA = stats.get(0);
+        assertThat(teamA.count()).isEqualTo(3);
+        assertThat(teamA.avgAge()).isEqualTo(13.0);
+        assertThat(teamA.minAge()).isEqualTo(5);
+        assertThat(teamA.maxAge()).isEqualTo(19);
+        assertThat(teamA.ageHistogram()).containsExactly(1L, 2L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+        assertThat(stats.get(1).ageHistogram()).containsExactly(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 2L);
+    }
+
+    @Test
+    void 검색_조건과_최소_회원_수를_적용한다() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+
+        //when
+        List<TeamStatsDto> stats = statsRepository.teamStats(condition, 2L);
+
+        //then
+        assertThat(stats).extracting("teamName").containsExactly("teamA", "teamB");
+        assertThat(stats).extracting("count").containsExactly(2L, 2L);
+    }
+
+    @Test
+    void 요약_테이블은_실시간_통계와_같다() throws Exception {
+        //given
+        MemberStatsRepository summaryRepository = new MemberStatsRepository(queryFactory, em, predicates, shardedSearch, true);
+        List<TeamStatsDto> live = statsRepository.liveStats(new MemberSearchCondition(), null);
+
+        //when
+        int rows = summaryRepository.refreshSummary();
+        em.flush();
+        em.clear();
+        em.persist(new Member("late", 40));
+
+        //then
+        assertThat(rows).isEqualTo(3);
+        assertThat(summaryRepository.teamStats(new MemberSearchCondition(), null)).isEqualTo(live);
+        assertThat(summaryRepository.teamStats(new MemberSearchCondition(), 3L)).extracting("teamName").containsExactly("teamA");
+    }
+
+    @Test
+    void 음수_나이는_첫_칸에_들고_요약에는_나이_합을_그대로_저장한다() throws Exception {
+        //given
+        Team teamC = new Team("teamC");
+        em.persist(teamC);
+        em.persist(new Member("c1", -3, teamC));
+        em.persist(new Member("c2", 7, teamC));
+        em.persist(new Member("c3", 7, teamC));
+        MemberStatsRepository summaryRepository = new MemberStatsRepository(queryFactory, em, predicates, shardedSearch, true);
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamC");
+
+        //when
+        TeamStatsDto live = statsRepository.teamStats(condition, null).get(0);
+        summaryRepository.refreshSummary();
+        em.flush();
+        em.clear();
+
+        //then
+        assertThat(live.ageHistogram()).containsExactly(3L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L);
+        assertThat(queryFactory.select(QTeamStatsSummary.teamStatsSummary.ageSum)
+                .from(QTeamStatsSummary.teamStatsSummary)
+                .where(QTeamStatsSummary.teamStatsSummary.teamName.eq("teamC"))
+                .fetchOne()).isEqualTo(11L);
+    }
+}
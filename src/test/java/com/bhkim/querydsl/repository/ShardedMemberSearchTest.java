@@ -0,0 +1,285 @@
+package com.bhkim.querydsl.repository;
+
+import com.bhkim.querydsl.config.MemberShard;
+import com.bhkim.querydsl.config.MemberShards;
+import com.bhkim.querydsl.dto.CursorSlice;
+import com.bhkim.querydsl.dto.MemberCursor;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.dto.TeamStatsDto;
+import com.bhkim.querydsl.entity.Member;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * 임베디드 H2 세 개를 샤드로 쓴다. 팀 t 와 그 회원은 t % 3 번 샤드에, 팀 없는 회원은 0 번 샤드에 넣는다.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.sharding.enabled=true",
+        "app.sharding.shards[0].jdbc-url=jdbc:h2:mem:shard0;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[1].jdbc-url=jdbc:h2:mem:shard1;DB_CLOSE_DELAY=-1",
+        "app.sharding.shards[2].jdbc-url=jdbc:h2:mem:shard2;DB_CLOSE_DELAY=-1"})
+class ShardedMemberSearchTest {
+    private static final int TEAMS = 6;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    ShardedMemberSearch shardedSearch;
+
+    @Autowired
+    MemberShards shards;
+
+    @Autowired
+    ShardedMemberWriter writer;
+
+    @Autowired
+    MemberStatsRepository statsRepository;
+
+    // 기본 DB (id 시퀀스)
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    // 하나의 DB 였다면 나왔을 전체 회원
+    List<MemberTeamDto> all = new ArrayList<>();
+
+    @BeforeEach
+    void 샤드별_데이터_생성() {
+        long memberId = 1;
+        for (long teamId = 1; teamId <= TEAMS; teamId++) {
+            JdbcTemplate jdbc = new JdbcTemplate(shards.shardFor(teamId).dataSource());
+            jdbc.update("insert into team (team_id, name) values (?, ?)", teamId, "team" + teamId);
+            for (int i = 0; i < 5; i++, memberId++) {
+                int age = (int) ((memberId * 7) % 50);
+                jdbc.update("insert into member (member_id, username, age, team_id) values (?, ?, ?, ?)",
+                        memberId, "member" + memberId, age, teamId);
+                all.add(new MemberTeamDto(memberId, "member" + memberId, age, teamId, "team" + teamId));
+            }
+        }
+        new JdbcTemplate(shards.shardFor(null).dataSource())
+                .update("insert into member (member_id, username, age) values (?, 'noTeam', 25)", memberId);
+        all.add(new MemberTeamDto(memberId, "noTeam", 25, null, null));
+    }
+
+    @AfterEach
+    void 정리() {
+        for (MemberShard shard : shards.all()) {
+            JdbcTemplate jdbc = new JdbcTemplate(shard.dataSource());
+            jdbc.update("delete from member");
+            jdbc.update("delete from team");
+        }
+    }
+
+    @Test
+    void 팀_조건은_한_샤드로만_보낸다() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("team4");
+
+        MemberSearchCondition multi = new MemberSearchCondition();
+        multi.setTeamNames(List.of("team1", "team4"));
+
+        //when
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        //then
+        assertThat(shardedSearch.targets(condition)).extracting(MemberShard::index).containsExactly(1);
+        assertThat(shardedSearch.targets(multi)).extracting(MemberShard::index).containsExactly(1);
+        assertThat(shardedSearch.targets(new MemberSearchCondition())).hasSize(3);
+        assertThat(result).containsExactlyElementsOf(all.stream().filter(m -> "team4".equals(m.teamName())).toList());
+    }
+
+    @Test
+    void 전체_샤드_검색과_페이지가_단일_DB_와_같다() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        List<MemberTeamDto> expected = all.stream().filter(m -> m.age() >= 10).toList();
+        List<MemberTeamDto> expectedSorted = expected.stream()
+                .sorted(Comparator.comparingInt(MemberTeamDto::age).reversed().thenComparing(MemberTeamDto::memberId))
+                .toList();
+
+        //when
+        List<MemberTeamDto> result = memberRepository.search(condition);
+        List<MemberTeamDto> paged = new ArrayList<>();
+        Page<MemberTeamDto> page;
+        int pageNumber = 0;
+        do {
+            page = memberRepository.searchPageComplex(condition, PageRequest.of(pageNumber++, 4, Sort.by(Sort.Order.desc("age"))));
+            paged.addAll(page.getContent());
+        } while (page.hasNext());
+
+        //then
+        assertThat(result).containsExactlyElementsOf(expected);
+        assertThat(page.getTotalElements()).isEqualTo(expected.size());
+        assertThat(paged).containsExactlyElementsOf(expectedSorted);
+    }
+
+    @Test
+    void 페이지_내용_건수_필드_커서도_모든_샤드를_읽는다() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        List<MemberTeamDto> expected = all.stream().filter(m -> m.age() >= 10).toList();
+        List<MemberTeamDto> expectedByAge = expected.stream()
+                .sorted(Comparator.comparingInt(MemberTeamDto::age).thenComparing(MemberTeamDto::memberId))
+                .toList();
+
+        //when
+        List<MemberTeamDto> content = memberRepository.searchPageContent(condition, PageRequest.of(1, 4));
+        long count = memberRepository.searchCount(condition);
+        List<Map<String, Object>> fields = memberRepository.searchFields(condition, List.of(MemberField.MEMBER_ID, MemberField.TEAM_NAME));
+        List<MemberTeamDto> sliced = new ArrayList<>();
+        MemberCursor cursor = MemberCursor.first(MemberCursor.Order.AGE);
+        CursorSlice<MemberTeamDto> slice;
+        do {
+            slice = memberRepository.searchSlice(condition, cursor, 4);
+            sliced.addAll(slice.getContent());
+            cursor = slice.isHasNext() ? MemberCursor.decode(slice.getNextCursor()) : null;
+        } while (cursor != null);
+
+        //then
+        assertThat(content).containsExactlyElementsOf(expected.subList(4, 8));
+        assertThat(count).isEqualTo(expected.size());
+        assertThat(fields).extracting(row -> row.get("memberId"))
+                .containsExactlyElementsOf(expected.stream().map(MemberTeamDto::memberId).toList());
+        assertThat(fields.get(0)).containsEntry("teamName", expected.get(0).teamName());
+        assertThat(sliced).containsExactlyElementsOf(expectedByAge);
+    }
+
+    @Test
+    void 이름이_없는_회원도_단일_DB_와_같은_순서로_병합한다() throws Exception {
+        //given
+        new JdbcTemplate(shards.shardFor(2L).dataSource())
+                .update("insert into member (member_id, username, age, team_id) values (100, null, 30, 2)");
+        all.add(new MemberTeamDto(100L, null, 30, 2L, "team2"));
+        List<MemberTeamDto> expected = all.stream()
+                .sorted(Comparator.comparing(MemberTeamDto::username, Comparator.nullsFirst(Comparator.naturalOrder()))
+                        .thenComparing(MemberTeamDto::memberId))
+                .toList();
+
+        //when
+        Page<MemberTeamDto> page = memberRepository.searchPageComplex(new MemberSearchCondition(),
+                PageRequest.of(0, all.size(), Sort.by("username")));
+
+        //then
+        assertThat(page.getContent()).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void 쓰기는_팀의_샤드로_가고_JPA_저장은_막는다() throws Exception {
+        //given
+        jdbcTemplate.execute("alter sequence team_seq restart with 1000");
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("written");
+
+        //when
+        long teamId = writer.createTeam("written");
+        long memberId = writer.createMember("writtenMember", 41, teamId);
+        List<MemberTeamDto> result = memberRepository.search(condition);
+
+        //then
+        assertThat(result).containsExactly(new MemberTeamDto(memberId, "writtenMember", 41, teamId, "written"));
+        assertThat(new JdbcTemplate(shards.shardFor(teamId).dataSource())
+                .queryForObject("select count(*) from member where member_id = ?", Long.class, memberId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from member", Long.class)).as("기본 DB 에는 쓰지 않는다").isZero();
+        assertThatThrownBy(() -> memberRepository.save(new Member("jpa", 1)))
+                .hasRootCauseInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void 빌더_검색_팀_조회_통계_벌크_연산도_샤드로_보낸다() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(10);
+        List<MemberTeamDto> expected = all.stream().filter(m -> m.age() >= 10).toList();
+        List<Long> expectedIds = expected.stream().map(MemberTeamDto::memberId).toList();
+        MemberSearchCondition team4 = new MemberSearchCondition();
+        team4.setTeamName("team4");
+        MemberSearchCondition old = new MemberSearchCondition();
+        old.setAgeGoe(100);
+
+        //when
+        List<MemberTeamDto> built = memberRepository.searchByBuilder(condition);
+        List<Member> withTeam = memberRepository.findAllWithTeam(condition);
+        List<Member> inBatch = memberRepository.findAllWithTeamInBatch(condition);
+        List<TeamStatsDto> stats = statsRepository.teamStats(new MemberSearchCondition(), null);
+        long aged = memberRepository.bulkAddAge(team4, 100);
+        long deleted = memberRepository.bulkDelete(old);
+
+        //then
+        assertThat(built).containsExactlyElementsOf(expected);
+        assertThat(withTeam).extracting(Member::getId).containsExactlyElementsOf(expectedIds);
+        assertThat(inBatch).extracting(Member::getId).containsExactlyElementsOf(expectedIds);
+        assertThat(withTeam.get(0).getTeam().getName()).isEqualTo(expected.get(0).teamName());
+        assertThat(stats).extracting(TeamStatsDto::teamId).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, null);
+        assertThat(stats).extracting(TeamStatsDto::count).containsExactly(5L, 5L, 5L, 5L, 5L, 5L, 1L);
+        assertThat(aged).isEqualTo(5);
+        assertThat(deleted).isEqualTo(5);
+        assertThat(memberRepository.searchCount(new MemberSearchCondition())).isEqualTo(all.size() - 5);
+        assertThat(memberRepository.searchCount(team4)).isZero();
+        assertThatThrownBy(() -> memberRepository.bulkChangeTeam(team4, 1L)).hasMessageContaining("bulkChangeTeam");
+    }
+
+    @Test
+    void 팀이_생기거나_이름이_바뀌면_팀_샤드_캐시를_비운다() throws Exception {
+        //given
+        jdbcTemplate.execute("alter sequence team_seq restart with 1002");
+        MemberSearchCondition renamed = new MemberSearchCondition();
+        renamed.setTeamName("renamed");
+        MemberSearchCondition team1 = new MemberSearchCondition();
+        team1.setTeamName("team1");
+        assertThat(shardedSearch.targets(renamed)).isEmpty();
+        assertThat(shardedSearch.targets(team1)).extracting(MemberShard::index).containsExactly(1);
+
+        //when
+        long teamId = writer.createTeam("team1");
+        writer.renameTeam(5L, "renamed");
+
+        //then
+        assertThat(shardedSearch.targets(renamed)).extracting(MemberShard::index).containsExactly(2);
+        assertThat(shards.shardFor(teamId).index()).isZero();
+        assertThat(shardedSearch.targets(team1)).extracting(MemberShard::index).containsExactly(0, 1);
+        assertThat(memberRepository.search(renamed)).hasSize(5);
+    }
+
+    @Test
+    void 스트림은_샤드_커서를_열어_둔_채_id_순서로_병합하고_닫을_때_반납한다() throws Exception {
+        //given
+        List<MemberTeamDto> streamed = new ArrayList<>();
+        List<Integer> activeWhileOpen = new ArrayList<>();
+
+        //when
+        try (Stream<MemberTeamDto> rows = memberRepository.stream(new MemberSearchCondition())) {
+            rows.forEach(row -> {
+                if (streamed.isEmpty()) {
+                    shards.all().forEach(shard -> activeWhileOpen.add(shard.dataSource().getHikariPoolMXBean().getActiveConnections()));
+                }
+                streamed.add(row);
+            });
+        }
+
+        //then
+        assertThat(streamed).containsExactlyElementsOf(all);
+        assertThat(activeWhileOpen).as("샤드마다 커서 하나").containsExactly(1, 1, 1);
+        assertThat(shards.all()).allMatch(shard -> shard.dataSource().getHikariPoolMXBean().getActiveConnections() == 0);
+    }
+}
@@ -0,0 +1,52 @@
+package com.bhkim.querydsl.service;
+
+import com.bhkim.querydsl.config.MemberSeedProperties;
+import com.bhkim.querydsl.config.TestQueryDslConfig;
+import com.bhkim.querydsl.entity.Member;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@Import({TestQueryDslConfig.class, MemberBulkLoader.class})
+class MemberBulkLoaderTest {
+
+    @Autowired
+    MemberBulkLoader loader;
+
+    @Autowired
+    EntityManager em;
+
+    @Test
+    void JPA_배치_적재() throws Exception {
+        //when
+        long rows = loader.load(new MemberSeedProperties(3, 10, 0, 7, false));
+
+        //then
+        assertThat(rows).isEqualTo(30);
+        assertThat(count("select count(m) from Member m")).isEqualTo(30);
+        assertThat(count("select count(m) from Member m where m.team.name = 'teamC'")).isEqualTo(10);
+    }
+
+    @Test
+    void CSV_적재_후_시퀀스_이어서_사용() throws Exception {
+        //when
+        long rows = loader.load(new MemberSeedProperties(2, 0, 25, 10, true));
+        Member added = new Member("added", 1);
+        em.persist(added);
+        em.flush();
+
+        //then
+        assertThat(rows).isEqualTo(25);
+        assertThat(count("select count(m) from Member m where m.team.name = 'teamA'")).isEqualTo(13);
+        assertThat(count("select count(m) from Member m")).isEqualTo(26);
+    }
+
+    private long count(String jpql) {
+        return em.createQuery(jpql, Long.class).getSingleResult();
+    }
+}
@@ -0,0 +1,111 @@
+package com.bhkim.querydsl.service;
+
+import com.bhkim.querydsl.dto.LowerBoundPage;
+import com.bhkim.querydsl.dto.MemberSearchCondition;
+import com.bhkim.querydsl.dto.MemberTeamDto;
+import com.bhkim.querydsl.entity.Member;
+import com.bhkim.querydsl.entity.Team;
+import com.bhkim.querydsl.repository.MemberRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * content / count 가 별도 트랜잭션에서 돌기 때문에 데이터를 커밋하고 테스트 후 지운다.
+ */
+@SpringBootTest(properties = "app.parallel-page.enabled=true")
+class MemberPageServiceTest {
+
+    @Autowired
+    MemberPageService memberPageService;
+
+    @Autowired
+    MemberRepository memberRepository;
+
+    @Autowired
+    EntityManager em;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    @Qualifier("queryExecutor")
+    ExecutorService queryExecutor;
+
+    @BeforeEach
+    void 멤버_생성() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 10; i++) {
+                em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+            }
+        });
+    }
+
+    @AfterEach
+    void 정리() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("delete from Member").executeUpdate();
+            em.createQuery("delete from Team").executeUpdate();
+        });
+    }
+
+    @Test
+    void 병렬_페이지_조회() throws Exception {
+        //given
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        //when
+        Page<MemberTeamDto> first = memberPageService.searchPage(condition, PageRequest.of(0, 2));
+        Page<MemberTeamDto> last = memberPageService.searchPage(condition, PageRequest.of(2, 2));
+
+        //then
+        assertThat(first.getContent()).extracting("username").containsExactly("member0", "member2");
+        assertThat(first.getTotalElements()).isEqualTo(5);
+        assertThat(last.getContent()).extracting("username").containsExactly("member8");
+        assertThat(last.getTotalElements()).isEqualTo(5);
+    }
+
+    @Test
+    void count_가_늦으면_total_을_하한으로_표시한다() throws Exception {
+        //given
+        MemberRepository slowCount = (MemberRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{MemberRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("searchCount")) {
+                        Thread.sleep(5000);
+                    }
+                    return method.invoke(memberRepository, args);
+                });
+        MemberPageService service = new MemberPageService(slowCount, queryExecutor, transactionManager, true, Duration.ofMillis(50), false);
+
+        //when
+        Page<MemberTeamDto> page = service.searchPage(new MemberSearchCondition(), PageRequest.of(0, 2));
+
+        //then
+        assertThat(page).isInstanceOf(LowerBoundPage.class);
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(((LowerBoundPage<MemberTeamDto>) page).isTotalLowerBound()).isTrue();
+    }
+}
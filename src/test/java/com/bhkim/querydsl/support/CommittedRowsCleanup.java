@@ -0,0 +1,68 @@
+package com.bhkim.querydsl.support;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.test.annotation.Rollback;
+import org.springframework.test.context.TestContext;
+import org.springframework.test.context.TestContextAnnotationUtils;
+import org.springframework.test.context.support.AbstractTestExecutionListener;
+
+/**
+ * @Commit (@Rollback(false)) 테스트가 커밋한 Member / Team 행을 테스트가 끝난 뒤 지운다.
+ * 테스트 시작 전의 최대 id 를 기억해 두고 그 뒤로 생긴 행만 지우므로 다른 테스트가 남긴 데이터는 건드리지 않는다.
+ * 커밋은 TransactionalTestExecutionListener(order 4000)의 afterTestMethod 에서 일어나므로 그보다 앞 순서로 등록해
+ * before 는 트랜잭션 시작 전, after 는 커밋 후에 돈다. META-INF/spring.factories 로 모든 테스트에 등록된다.
+ */
+public class CommittedRowsCleanup extends AbstractTestExecutionListener {
+    private static final String MAX_IDS = CommittedRowsCleanup.class.getName() + ".maxIds";
+
+    @Override
+    public int getOrder() {
+        return 3900;
+    }
+
+    @Override
+    public void beforeTestMethod(TestContext testContext) {
+        if (!commits(testContext)) {
+            return;
+        }
+        EntityManager em = entityManagerFactory(testContext).createEntityManager();
+        try {
+            long member = em.createQuery("select coalesce(max(m.id), 0) from Member m", Long.class).getSingleResult();
+            long team = em.createQuery("select coalesce(max(t.id), 0) from Team t", Long.class).getSingleResult();
+            testContext.setAttribute(MAX_IDS, new long[]{member, team});
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public void afterTestMethod(TestContext testContext) {
+        long[] maxIds = (long[]) testContext.removeAttribute(MAX_IDS);
+        if (maxIds == null) {
+            return;
+        }
+        EntityManager em = entityManagerFactory(testContext).createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("delete from Member m where m.id > :id").setParameter("id", maxIds[0]).executeUpdate();
+            em.createQuery("delete from Team t where t.id > :id").setParameter("id", maxIds[1]).executeUpdate();
+            em.getTransaction().commit();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static boolean commits(TestContext testContext) {
+        Rollback rollback = AnnotatedElementUtils.findMergedAnnotation(testContext.getTestMethod(), Rollback.class);
+        if (rollback == null) {
+            rollback = TestContextAnnotationUtils.findMergedAnnotation(testContext.getTestClass(), Rollback.class);
+        }
+        return rollback != null && !rollback.value();
+    }
+
+    private static EntityManagerFactory entityManagerFactory(TestContext testContext) {
+        return testContext.getApplicationContext().getBean(EntityManagerFactory.class);
+    }
+}
@@ -0,0 +1,32 @@
+package com.bhkim.querydsl.support;
+
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 호출 중 실행된 SQL 문 수를 Hibernate Statistics 로 센다. N+1 회귀를 잡는 용도.
+ * 통계는 SessionFactory 전역이므로 테스트를 병렬로 돌리면 안 된다.
+ */
+public final class QueryCounter {
+
+    private QueryCounter() {
+    }
+
+    public static long count(EntityManager em, Runnable call) {
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        call.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    public static void assertMaxStatements(EntityManager em, long expected, Runnable call) {
+        long actual = count(em, call);
+        assertThat(actual)
+                .as("SQL statements issued (expected at most %d)", expected)
+                .isLessThanOrEqualTo(expected);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bhkim.querydsl.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hibernate 가 만든 SQL 을 그대로 모은다. hibernate.session_factory.statement_inspector 로 등록해서 쓴다.
+ * 조인 유무처럼 SQL 모양을 확인하는 용도. 전역 상태이므로 테스트를 병렬로 돌리면 안 된다.
+ */
+public class SqlRecorder implements StatementInspector {
+    public static final String PROPERTY =
+            "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.bhkim.querydsl.support.SqlRecorder";
+
+    private static final List<String> statements = new ArrayList<>();
+
+    @Override
+    public synchronized String inspect(String sql) {
+        statements.add(sql);
+        return sql;
+    }
+
+    public static synchronized List<String> record(Runnable call) {
+        statements.clear();
+        call.run();
+        return List.copyOf(statements);
+    }
+}